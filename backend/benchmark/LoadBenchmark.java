@@ -0,0 +1,606 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load driver for the backend, runs on JDK 17+ without a build:
+ * <pre>
+ * java benchmark/LoadBenchmark.java --url http://localhost:8080 --concurrency 200 --duration 60 --max-ad-id 1000000
+ * </pre>
+ * Every worker sends one request at a time, picked by the weights of --mix, and records its latency.
+ * Requests sent during --warmup are not recorded. Results and latency histograms are printed per endpoint,
+ * appended to --csv and written as JSON to --report if given.
+ * <p>
+ * Endpoints of the mix:
+ * detail - GET /api/ads/{id} with a random ID up to --max-ad-id,
+ * list - GET /api/ads with a random category, price range and page,
+ * login - POST /api/auth/login with --username and --password,
+ * refresh - POST /api/auth/refresh with the refresh token of the worker's user,
+ * create - POST /api/ads as the worker's user.
+ * With --token every request is sent with the access token, so it also goes through the JWT filter.
+ * With --users the driver registers and signs in that many users first, the workers take turns using them.
+ * <p>
+ * --thresholds fails the run with exit code 1 when a limit is not met, e.g. {@code all.p99=500,detail.p99=50,all.errors=0.1,all.rps=100}:
+ * p50, p90, p99, p99.9 and max are upper limits in milliseconds, errors is an upper limit in percent of the requests
+ * and rps a lower limit of requests per second, of one endpoint or of all of them.
+ * <p>
+ * With --app-main the driver starts the backend itself, on the class path of the driver and with --app-args,
+ * waits until its readiness check is up and stops it when the run is over, see the load profile of pom.xml.
+ */
+public class LoadBenchmark {
+
+    private static final String[] CATEGORIES = {"clothing", "tools", "sports", "accessories", "furniture", "pets", "games", "books", "technology"};
+
+    private static final String[] CITIES = {"Belgrade", "Novi Sad", "Nis", "Kragujevac", "Subotica"};
+
+    /**
+     * Upper bounds of the latency histogram buckets in milliseconds, the last bucket has no upper bound
+     */
+    private static final long[] HISTOGRAM_BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, Long.MAX_VALUE};
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "200"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60")));
+        long maxAdId = Long.parseLong(options.getOrDefault("max-ad-id", "100"));
+        String label = options.getOrDefault("label", "run");
+        Map<String, Integer> mix = parseMix(options.getOrDefault("mix", "detail=60,list=40"));
+        List<Threshold> thresholds = parseThresholds(options.getOrDefault("thresholds", ""));
+        String password = options.getOrDefault("password", "password");
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        Process app = options.containsKey("app-main") ? startApp(client, url, options) : null;
+        boolean passed;
+        try {
+            List<Session> sessions = sessions(client, url, options, password);
+            RequestFactory requests = new RequestFactory(url, sessions, password, maxAdId, mix);
+
+            long start = System.nanoTime();
+            long recordFrom = start + warmup.toNanos();
+            long end = recordFrom + duration.toNanos();
+
+            List<Worker> workers = new ArrayList<>(concurrency);
+            CountDownLatch done = new CountDownLatch(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                Session session = sessions.isEmpty() ? null : sessions.get(i % sessions.size());
+                Worker worker = new Worker(client, requests, session, new SplittableRandom(i), recordFrom, end, done);
+                workers.add(worker);
+                Thread thread = new Thread(worker, "load-" + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            System.out.printf("%s: %d workers, %d users, %ds warmup, %ds measured, mix %s%n",
+                    label, concurrency, sessions.size(), warmup.toSeconds(), duration.toSeconds(), mix);
+            done.await();
+
+            Map<String, Recorder> totals = new TreeMap<>();
+            for (Worker worker : workers) {
+                worker.recorders.forEach((endpoint, recorder) -> totals.computeIfAbsent(endpoint, e -> new Recorder()).merge(recorder));
+            }
+            Recorder all = new Recorder();
+            totals.values().forEach(all::merge);
+            totals.put("all", all);
+
+            Map<String, Result> results = new LinkedHashMap<>();
+            totals.forEach((endpoint, recorder) -> results.put(endpoint, new Result(recorder, duration)));
+            report(label, results, options.get("csv"));
+            passed = check(thresholds, results);
+            if (options.containsKey("report")) {
+                writeReport(Path.of(options.get("report")), label, results, thresholds, passed);
+            }
+        } finally {
+            if (app != null) {
+                app.destroy();
+                if (!app.waitFor(30, TimeUnit.SECONDS)) {
+                    app.destroyForcibly();
+                }
+            }
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Starts the backend with the main class and arguments of the options and waits until it is up
+     */
+    private static Process startApp(HttpClient client, String url, Map<String, String> options) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(splitArgs(options.getOrDefault("app-jvm-args", "")));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(options.get("app-main"));
+        command.add("--server.port=" + URI.create(url).getPort());
+        command.addAll(splitArgs(options.getOrDefault("app-args", "")));
+        Path log = Path.of(options.getOrDefault("app-log", "target/load-app.log"));
+        Files.createDirectories(log.toAbsolutePath().getParent());
+        Process app = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        Runtime.getRuntime().addShutdownHook(new Thread(app::destroyForcibly));
+
+        //the backend listens before the data set is generated, it is ready afterwards
+        long timeout = System.nanoTime() + Duration.ofSeconds(Long.parseLong(options.getOrDefault("app-start-timeout", "600"))).toNanos();
+        HttpRequest health = HttpRequest.newBuilder(URI.create(url + options.getOrDefault("app-ready-path", "/actuator/health/readiness"))).timeout(Duration.ofSeconds(5)).build();
+        System.out.printf("starting backend, log in %s%n", log);
+        while (true) {
+            if (!app.isAlive()) {
+                throw new IllegalStateException("Backend exited with code " + app.exitValue() + ", see " + log);
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return app;
+                }
+            } catch (IOException e) {
+                //not listening yet
+            }
+            if (System.nanoTime() > timeout) {
+                app.destroyForcibly();
+                throw new IllegalStateException("Backend did not start in time, see " + log);
+            }
+            Thread.sleep(1000);
+        }
+    }
+
+    /**
+     * Registers and signs in --users new users, or returns the user of --token and --username
+     */
+    private static List<Session> sessions(HttpClient client, String url, Map<String, String> options, String password)
+            throws IOException, InterruptedException {
+        int users = Integer.parseInt(options.getOrDefault("users", "0"));
+        List<Session> sessions = new ArrayList<>();
+        if (users == 0) {
+            if (options.containsKey("token") || options.containsKey("username")) {
+                sessions.add(new Session(options.get("username"), options.get("token"), null));
+            }
+            return sessions;
+        }
+        //usernames are unique per run, so the same database can be used again
+        String prefix = "u" + Long.toString(System.currentTimeMillis() % 2_176_782_336L, 36) + "x";
+        for (int i = 0; i < users; i++) {
+            String username = prefix + i;
+            send(client, url + "/api/auth/register", "{\"username\":\"" + username + "\",\"password\":\"" + password
+                    + "\",\"phoneNumber\":\"0600000000\"}", 201);
+            String response = send(client, url + "/api/auth/login", loginBody(username, password), 200);
+            sessions.add(new Session(username, jsonField(response, "token"), jsonField(response, "refreshToken")));
+        }
+        return sessions;
+    }
+
+    private static String send(HttpClient client, String url, String body, int expectedStatus) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .timeout(Duration.ofSeconds(60))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != expectedStatus) {
+            throw new IllegalStateException(url + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static String jsonField(String json, String field) {
+        Matcher matcher = Pattern.compile("\"" + field + "\"\\s*:\\s*\"([^\"]+)\"").matcher(json);
+        if (!matcher.find()) {
+            throw new IllegalStateException("No " + field + " in " + json);
+        }
+        return matcher.group(1);
+    }
+
+    private static String loginBody(String username, String password) {
+        return "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}";
+    }
+
+    private static void report(String label, Map<String, Result> results, String csv) throws IOException {
+        System.out.printf("%-8s %10s %10s %9s %9s %9s %9s %9s  %s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        List<String> rows = new ArrayList<>();
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            Result result = entry.getValue();
+            System.out.printf("%-8s %10d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                    entry.getKey(), result.requests, result.throughput,
+                    result.p50, result.p90, result.p99, result.p999, result.max,
+                    result.errors.isEmpty() ? "-" : result.errors);
+            rows.add(String.format(Locale.ROOT, "%s,%s,%d,%.1f,%.2f,%.2f,%.2f,%.2f,%.2f,%d",
+                    label, entry.getKey(), result.requests, result.throughput,
+                    result.p50, result.p90, result.p99, result.p999, result.max, result.errorCount()));
+        }
+
+        System.out.println();
+        System.out.printf("%-8s %s%n", "ms", String.join("", Arrays.stream(HISTOGRAM_BOUNDS)
+                .mapToObj(bound -> String.format("%8s", bound == Long.MAX_VALUE ? "more" : "<=" + bound)).toList()));
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            StringBuilder row = new StringBuilder(String.format("%-8s ", entry.getKey()));
+            for (long count : entry.getValue().histogram) {
+                row.append(String.format("%8d", count));
+            }
+            System.out.println(row);
+        }
+
+        if (csv != null) {
+            Path path = Path.of(csv);
+            if (Files.notExists(path)) {
+                Files.writeString(path, "label,endpoint,requests,throughput,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,errors\n");
+            }
+            Files.write(path, rows, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * Prints every threshold with the measured value
+     *
+     * @return whether all thresholds are met
+     */
+    private static boolean check(List<Threshold> thresholds, Map<String, Result> results) {
+        if (thresholds.isEmpty()) {
+            return true;
+        }
+        boolean passed = true;
+        System.out.println();
+        for (Threshold threshold : thresholds) {
+            Result result = results.get(threshold.endpoint);
+            threshold.value = result == null ? Double.NaN : result.metric(threshold.metric);
+            threshold.passed = result != null && result.requests > 0
+                    && (threshold.metric.equals("rps") ? threshold.value >= threshold.limit : threshold.value <= threshold.limit);
+            passed &= threshold.passed;
+            System.out.printf("%-4s %-16s %s %10.2f, measured %10.2f%n", threshold.passed ? "PASS" : "FAIL",
+                    threshold.endpoint + "." + threshold.metric, threshold.metric.equals("rps") ? ">=" : "<=",
+                    threshold.limit, threshold.value);
+        }
+        System.out.println(passed ? "all thresholds met" : "thresholds not met");
+        return passed;
+    }
+
+    private static void writeReport(Path path, String label, Map<String, Result> results, List<Threshold> thresholds,
+                                    boolean passed) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append(String.format("{%n  \"label\": \"%s\",%n  \"passed\": %s,%n  \"histogramBoundsMs\": %s,%n  \"endpoints\": {",
+                label, passed, Arrays.toString(HISTOGRAM_BOUNDS).replace(String.valueOf(Long.MAX_VALUE), "null")));
+        String separator = "";
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            Result result = entry.getValue();
+            json.append(String.format(Locale.ROOT, "%s%n    \"%s\": {\"requests\": %d, \"rps\": %.1f, \"p50\": %.2f, \"p90\": %.2f, "
+                            + "\"p99\": %.2f, \"p99.9\": %.2f, \"max\": %.2f, \"errors\": %d, \"histogram\": %s}",
+                    separator, entry.getKey(), result.requests, result.throughput, result.p50, result.p90, result.p99,
+                    result.p999, result.max, result.errorCount(), Arrays.toString(result.histogram)));
+            separator = ",";
+        }
+        json.append(String.format("%n  },%n  \"thresholds\": ["));
+        separator = "";
+        for (Threshold threshold : thresholds) {
+            json.append(String.format(Locale.ROOT, "%s%n    {\"name\": \"%s.%s\", \"limit\": %s, \"value\": %s, \"passed\": %s}",
+                    separator, threshold.endpoint, threshold.metric, threshold.limit,
+                    Double.isNaN(threshold.value) ? "null" : String.format(Locale.ROOT, "%.2f", threshold.value), threshold.passed));
+            separator = ",";
+        }
+        json.append(String.format("%n  ]%n}%n"));
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Files.writeString(path, json);
+        System.out.printf("report written to %s%n", path);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs, got: " + Arrays.toString(args));
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] pair = part.split("=");
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(pair[0].trim(), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Mix has no endpoints: " + mix);
+        }
+        return weights;
+    }
+
+    private static List<Threshold> parseThresholds(String thresholds) {
+        List<Threshold> parsed = new ArrayList<>();
+        for (String part : thresholds.split(",")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            String[] pair = part.split("=");
+            String name = pair[0].trim();
+            int dot = name.indexOf('.');
+            if (pair.length != 2 || dot < 0 || !Result.METRICS.contains(name.substring(dot + 1))) {
+                throw new IllegalArgumentException("Expected endpoint.metric=limit with a metric of " + Result.METRICS + ", got: " + part);
+            }
+            parsed.add(new Threshold(name.substring(0, dot), name.substring(dot + 1), Double.parseDouble(pair[1].trim())));
+        }
+        return parsed;
+    }
+
+    private static List<String> splitArgs(String args) {
+        return args.isBlank() ? List.of() : List.of(args.trim().split("\\s+"));
+    }
+
+    /**
+     * A user of the workers, the tokens are null if the driver did not sign in
+     */
+    private record Session(String username, String token, String refreshToken) {
+    }
+
+    /**
+     * Builds the requests of the mix, shared by all workers
+     */
+    private static final class RequestFactory {
+
+        private final String url;
+        private final String password;
+        private final long maxAdId;
+        private final String[] endpoints;
+        private final int[] cumulativeWeights;
+
+        RequestFactory(String url, List<Session> sessions, String password, long maxAdId, Map<String, Integer> mix) {
+            this.url = url;
+            this.password = password;
+            this.maxAdId = maxAdId;
+            this.endpoints = mix.keySet().toArray(new String[0]);
+            this.cumulativeWeights = new int[endpoints.length];
+            int sum = 0;
+            for (int i = 0; i < endpoints.length; i++) {
+                sum += mix.get(endpoints[i]);
+                cumulativeWeights[i] = sum;
+            }
+            if (mix.containsKey("login") && (sessions.isEmpty() || sessions.get(0).username() == null)) {
+                throw new IllegalArgumentException("login requests need --username or --users");
+            }
+            if (mix.containsKey("create") && (sessions.isEmpty() || sessions.get(0).token() == null)) {
+                throw new IllegalArgumentException("create requests need --token or --users");
+            }
+            if (mix.containsKey("refresh") && (sessions.isEmpty() || sessions.get(0).refreshToken() == null)) {
+                throw new IllegalArgumentException("refresh requests need --users");
+            }
+        }
+
+        String pick(SplittableRandom random) {
+            int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < endpoints.length; i++) {
+                if (value < cumulativeWeights[i]) {
+                    return endpoints[i];
+                }
+            }
+            throw new IllegalStateException();
+        }
+
+        HttpRequest create(String endpoint, Session session, SplittableRandom random) {
+            HttpRequest.Builder builder = switch (endpoint) {
+                case "detail" -> HttpRequest.newBuilder(URI.create(url + "/api/ads/" + random.nextLong(1, maxAdId + 1)));
+                case "list" -> {
+                    double minPrice = random.nextInt(100);
+                    yield HttpRequest.newBuilder(URI.create(url + "/api/ads?category=" + CATEGORIES[random.nextInt(CATEGORIES.length)]
+                            + "&minPrice=" + minPrice + "&maxPrice=" + (minPrice + 50 + random.nextInt(500))
+                            + "&page=" + random.nextInt(5) + "&size=20"));
+                }
+                case "login" -> post("/api/auth/login", loginBody(session.username(), password));
+                case "refresh" -> post("/api/auth/refresh", "{\"refreshToken\":\"" + session.refreshToken() + "\"}");
+                case "create" -> post("/api/ads", String.format(Locale.ROOT,
+                        "{\"name\":\"Load test ad %d\",\"description\":\"Created by the load test\",\"price\":%d,\"category\":\"%s\",\"city\":\"%s\"}",
+                        random.nextInt(1_000_000), random.nextInt(1, 1000), CATEGORIES[random.nextInt(CATEGORIES.length)],
+                        CITIES[random.nextInt(CITIES.length)]));
+                default -> throw new IllegalArgumentException("Unknown endpoint: " + endpoint);
+            };
+            if (session != null && session.token() != null && !endpoint.equals("login") && !endpoint.equals("refresh")) {
+                builder.header("Authorization", "Bearer " + session.token());
+            }
+            return builder.timeout(Duration.ofSeconds(60)).build();
+        }
+
+        private HttpRequest.Builder post(String path, String body) {
+            return HttpRequest.newBuilder(URI.create(url + path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+        }
+    }
+
+    private static final class Worker implements Runnable {
+
+        private final HttpClient client;
+        private final RequestFactory requests;
+        private final Session session;
+        private final SplittableRandom random;
+        private final long recordFrom;
+        private final long end;
+        private final CountDownLatch done;
+        private final Map<String, Recorder> recorders = new HashMap<>();
+
+        Worker(HttpClient client, RequestFactory requests, Session session, SplittableRandom random, long recordFrom, long end,
+               CountDownLatch done) {
+            this.client = client;
+            this.requests = requests;
+            this.session = session;
+            this.random = random;
+            this.recordFrom = recordFrom;
+            this.end = end;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long now;
+                while ((now = System.nanoTime()) < end) {
+                    String endpoint = requests.pick(random);
+                    HttpRequest request = requests.create(endpoint, session, random);
+                    String error = null;
+                    try {
+                        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (status >= 400 && !(endpoint.equals("detail") && status == 404)) {
+                            error = String.valueOf(status);
+                        }
+                    } catch (IOException e) {
+                        error = e.getClass().getSimpleName();
+                    }
+                    long finished = System.nanoTime();
+                    if (now >= recordFrom && finished <= end) {
+                        recorders.computeIfAbsent(endpoint, e -> new Recorder()).record(finished - now, error);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+
+    /**
+     * Latencies in nanoseconds and error counts of one worker or of the merged results
+     */
+    private static final class Recorder {
+
+        private long[] latencies = new long[1024];
+        private int size = 0;
+        private final Map<String, Long> errors = new TreeMap<>();
+
+        void record(long latency, String error) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latency;
+            if (error != null) {
+                errors.merge(error, 1L, Long::sum);
+            }
+        }
+
+        void merge(Recorder other) {
+            if (size + other.size > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, size + other.size));
+            }
+            System.arraycopy(other.latencies, 0, latencies, size, other.size);
+            size += other.size;
+            other.errors.forEach((error, count) -> errors.merge(error, count, Long::sum));
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    /**
+     * Summary of the latencies of one endpoint, latencies in milliseconds
+     */
+    private static final class Result {
+
+        private static final List<String> METRICS = List.of("p50", "p90", "p99", "p99.9", "max", "errors", "rps");
+
+        private final int requests;
+        private final double throughput;
+        private final double p50;
+        private final double p90;
+        private final double p99;
+        private final double p999;
+        private final double max;
+        private final Map<String, Long> errors;
+        private final long[] histogram = new long[HISTOGRAM_BOUNDS.length];
+
+        Result(Recorder recorder, Duration duration) {
+            long[] latencies = recorder.sorted();
+            this.requests = latencies.length;
+            this.throughput = latencies.length / (duration.toNanos() / 1e9);
+            this.p50 = millis(percentile(latencies, 50));
+            this.p90 = millis(percentile(latencies, 90));
+            this.p99 = millis(percentile(latencies, 99));
+            this.p999 = millis(percentile(latencies, 99.9));
+            this.max = millis(latencies.length == 0 ? 0 : latencies[latencies.length - 1]);
+            this.errors = recorder.errors;
+            int bucket = 0;
+            for (long latency : latencies) {
+                while (HISTOGRAM_BOUNDS[bucket] != Long.MAX_VALUE && latency > HISTOGRAM_BOUNDS[bucket] * 1_000_000) {
+                    bucket++;
+                }
+                histogram[bucket]++;
+            }
+        }
+
+        long errorCount() {
+            return errors.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        double metric(String metric) {
+            return switch (metric) {
+                case "p50" -> p50;
+                case "p90" -> p90;
+                case "p99" -> p99;
+                case "p99.9" -> p999;
+                case "max" -> max;
+                case "errors" -> requests == 0 ? 0 : 100.0 * errorCount() / requests;
+                case "rps" -> throughput;
+                default -> throw new IllegalArgumentException("Unknown metric: " + metric);
+            };
+        }
+    }
+
+    /**
+     * Limit of one metric, value and passed are set by the check
+     */
+    private static final class Threshold {
+
+        private final String endpoint;
+        private final String metric;
+        private final double limit;
+        private double value;
+        private boolean passed;
+
+        Threshold(String endpoint, String metric, double limit) {
+            this.endpoint = endpoint;
+            this.metric = metric;
+            this.limit = limit;
+        }
+    }
+}
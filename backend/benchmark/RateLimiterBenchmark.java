@@ -0,0 +1,97 @@
+import com.webads.web_ads_backend.ratelimit.LocalRateLimiter;
+import com.webads.web_ads_backend.ratelimit.RateLimiter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Cost of one rate limit check, runs against the compiled classes without a database:
+ * <pre>
+ * mvn -q compile && java -cp target/classes benchmark/RateLimiterBenchmark.java --threads 8 --keys 10000000
+ * </pre>
+ * Every thread checks keys picked at random from --keys clients in a table of --max-keys slots, for --warmup and then
+ * --duration seconds, and prints nanoseconds per check and the share of checks that had to use another client's slot.
+ * The hot scenario sends all checks of a thread to the same key.
+ */
+public class RateLimiterBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int maxKeys = Integer.parseInt(options.getOrDefault("max-keys", "1048576"));
+        long keys = Long.parseLong(options.getOrDefault("keys", "1000000"));
+        long capacity = Long.parseLong(options.getOrDefault("capacity", "300"));
+        Duration period = Duration.parse("PT" + options.getOrDefault("period", "60s").toUpperCase());
+        long warmup = Long.parseLong(options.getOrDefault("warmup", "3"));
+        long duration = Long.parseLong(options.getOrDefault("duration", "5"));
+
+        System.out.printf("threads=%d max-keys=%d (%d MB) capacity=%d per %s%n",
+                threads, maxKeys, maxKeys * 8L / (1 << 20), capacity, period);
+        for (String scenario : List.of("hot", "keys")) {
+            LocalRateLimiter limiter = new LocalRateLimiter(capacity, period, maxKeys);
+            run(limiter, scenario, threads, keys, warmup);
+            long sharedBefore = limiter.sharedSlotCount();
+            long[] result = run(limiter, scenario, threads, keys, duration);
+            System.out.printf("%-5s keys=%-9d %6.1f ns/check  %6.1f M checks/s  allowed %5.1f%%  shared %5.2f%%%n",
+                    scenario, "hot".equals(scenario) ? threads : keys,
+                    duration * 1e9 * threads / result[0], result[0] / (duration * 1e6),
+                    100.0 * result[1] / result[0], 100.0 * (limiter.sharedSlotCount() - sharedBefore) / result[0]);
+        }
+    }
+
+    /**
+     * @return checks and allowed checks of all threads
+     */
+    private static long[] run(LocalRateLimiter limiter, String scenario, int threads, long keys, long seconds) throws Exception {
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        long[][] counts = new long[threads][2];
+        for (int t = 0; t < threads; t++) {
+            long[] count = counts[t];
+            long hotKey = RateLimiter.hash(t);
+            SplittableRandom random = new SplittableRandom(t);
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long checks = 0;
+                long allowed = 0;
+                do {
+                    //checking the clock every check would cost as much as the check itself
+                    for (int i = 0; i < 1024; i++) {
+                        long key = "hot".equals(scenario) ? hotKey : RateLimiter.hash(random.nextLong(keys));
+                        if (limiter.tryAcquire(key) >= 0) {
+                            allowed++;
+                        }
+                    }
+                    checks += 1024;
+                } while (System.nanoTime() < end);
+                count[0] = checks;
+                count[1] = allowed;
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long[] total = new long[2];
+        for (long[] count : counts) {
+            total[0] += count[0];
+            total[1] += count[1];
+        }
+        return total;
+    }
+}
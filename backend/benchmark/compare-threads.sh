@@ -0,0 +1,78 @@
+#!/usr/bin/env bash
+#Runs LoadBenchmark against the backend once with platform threads and once with virtual threads,
+#with the same connection pool, Tomcat and load settings, and collects both results in one CSV file.
+#
+#Needs a built jar, a Java 21+ runtime (virtual threads are ignored on older ones) and the usual
+#DB_*/JWT_* environment variables pointing at a database filled by the generate profile, e.g.
+#   DB_URL=jdbc:postgresql://localhost:5432/ads_db ... JAVA=/opt/jdk21/bin/java MAX_AD_ID=1000000 benchmark/compare-threads.sh
+#Pinned virtual threads are logged with JAVA_TOOL_OPTIONS=-Djdk.tracePinnedThreads=short.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+JAVA=${JAVA:-java}
+JAR=${JAR:-target/web-ads-backend-0.0.1-SNAPSHOT.jar}
+PORT=${PORT:-8080}
+MANAGEMENT_PORT=${MANAGEMENT_PORT:-8081}
+DB_POOL_SIZE=${DB_POOL_SIZE:-10}
+TOMCAT_THREADS=${TOMCAT_THREADS:-200}
+CONCURRENCY=${CONCURRENCY:-400}
+WARMUP=${WARMUP:-15}
+DURATION=${DURATION:-60}
+MAX_AD_ID=${MAX_AD_ID:-100}
+MIX=${MIX:-detail=60,list=40}
+MODES=${MODES:-platform virtual}
+RESULTS=${RESULTS:-target/threads-benchmark.csv}
+HEAP=${HEAP:--Xmx1g}
+
+java_major=$("$JAVA" -XshowSettings:properties -version 2>&1 | awk -F' = ' '/java.specification.version/ {print $2}')
+if [[ " $MODES " == *" virtual "* && "$java_major" -lt 21 ]]; then
+  echo "virtual threads need java 21+, $JAVA is java $java_major" >&2
+  exit 1
+fi
+
+rm -f "$RESULTS"
+base="http://localhost:$PORT"
+
+for mode in $MODES; do
+  virtual=false
+  [[ "$mode" == "virtual" ]] && virtual=true
+
+  echo "starting backend with $mode threads, $DB_POOL_SIZE connections"
+  VIRTUAL_THREADS=$virtual DB_POOL_SIZE=$DB_POOL_SIZE DB_SEED=false \
+  RATE_LIMIT_ENABLED=false \
+    "$JAVA" $HEAP -jar "$JAR" --server.port="$PORT" --management.server.port="$MANAGEMENT_PORT" --server.tomcat.threads.max="$TOMCAT_THREADS" \
+    --spring.jpa.show-sql=false --logging.level.root=WARN > "target/threads-benchmark-$mode.log" 2>&1 &
+  app=$!
+  trap 'kill $app 2>/dev/null || true' EXIT
+
+  until curl -sf "http://localhost:$MANAGEMENT_PORT/actuator/health" > /dev/null; do
+    if ! kill -0 $app 2>/dev/null; then
+      echo "backend exited, see target/threads-benchmark-$mode.log" >&2
+      exit 1
+    fi
+    sleep 2
+  done
+
+  #every run gets a fresh user, its token sends the reads through the JWT filter as well
+  username="bench$RANDOM$RANDOM"
+  curl -sf -o /dev/null -X POST "$base/api/auth/register" -H 'Content-Type: application/json' \
+    -d "{\"username\":\"$username\",\"password\":\"password\",\"phoneNumber\":\"0600000000\"}"
+  token=$(curl -sf -X POST "$base/api/auth/login" -H 'Content-Type: application/json' \
+    -d "{\"username\":\"$username\",\"password\":\"password\"}" | sed -E 's/.*"token":"([^"]+)".*/\1/')
+
+  "$JAVA" benchmark/LoadBenchmark.java --url "$base" --label "$mode" --concurrency "$CONCURRENCY" \
+    --warmup "$WARMUP" --duration "$DURATION" --max-ad-id "$MAX_AD_ID" --mix "$MIX" --token "$token" \
+    --username "$username" --password password --csv "$RESULTS"
+
+  kill $app
+  wait $app 2>/dev/null || true
+  trap - EXIT
+done
+
+echo
+if command -v column > /dev/null; then
+  column -s, -t < "$RESULTS"
+else
+  cat "$RESULTS"
+fi
@@ -0,0 +1,79 @@
+package com.webads.web_ads_backend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares a JMH result file with the result of an earlier run, both written with -rf json.
+ * Benchmarks are matched by name and parameters. A score that got worse by more than the allowed percent,
+ * lower for throughput and higher for all time modes, is a regression and fails the build:
+ * <pre>
+ * mvn -P jmh verify -Djmh.baseline=jmh-main.json -Djmh.max-regression=10
+ * </pre>
+ * Without a baseline the scores are only printed. Compare runs of the same machine, scores of different machines
+ * are not comparable.
+ */
+public class BenchmarkRegressionCheck {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BenchmarkRegressionCheck <result.json> <max regression percent> [baseline.json]");
+            System.exit(2);
+        }
+        Map<String, JsonNode> results = read(new File(args[0]));
+        double maxRegression = Double.parseDouble(args[1]);
+        File baselineFile = args.length > 2 ? new File(args[2]) : null;
+        Map<String, JsonNode> baseline = baselineFile != null && baselineFile.isFile() ? read(baselineFile) : Map.of();
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : results.entrySet()) {
+            JsonNode metric = entry.getValue().get("primaryMetric");
+            double score = metric.get("score").asDouble();
+            String unit = metric.get("scoreUnit").asText();
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-70s %12.3f %-8s%n", entry.getKey(), score, unit);
+                continue;
+            }
+            double previous = before.get("primaryMetric").get("score").asDouble();
+            boolean throughput = "thrpt".equals(entry.getValue().get("mode").asText());
+            //positive when the benchmark got slower
+            double change = 100 * (throughput ? previous - score : score - previous) / previous;
+            boolean regression = change > maxRegression;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-70s %12.3f %-8s was %12.3f  %+6.1f%% %s%n",
+                    entry.getKey(), score, unit, previous, change, regression ? "REGRESSION" : "");
+        }
+        if (baselineFile != null && baseline.isEmpty()) {
+            System.out.println("no baseline results in " + baselineFile + ", nothing to compare");
+        }
+        if (regressions > 0) {
+            System.err.printf("%d benchmarks are more than %.1f%% slower than the baseline%n", regressions, maxRegression);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return results keyed by benchmark name and parameters
+     */
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.get("benchmark").asText()
+                    .replaceFirst("^com\\.webads\\.web_ads_backend\\.", ""));
+            JsonNode params = result.get("params");
+            if (params != null) {
+                params.fields().forEachRemaining(param -> key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,103 @@
+package com.webads.web_ads_backend.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.webads.web_ads_backend.model.Ad;
+import com.webads.web_ads_backend.model.Category;
+import com.webads.web_ads_backend.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response bodies of the ad endpoints: ads mapped to {@link AdDTO} and pages written by Jackson,
+ * with the date settings of the application's object mapper.
+ * The summary page is what GET /api/ads returns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdDtoBenchmark {
+
+    @Param({"20"})
+    public int pageSize;
+
+    private ObjectMapper objectMapper;
+
+    private List<Ad> ads;
+
+    private Page<AdSummaryDTO> summaryPage;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        User seller = new User();
+        seller.setId(7L);
+        seller.setUsername("seller");
+        seller.setPhoneNumber("0600000000");
+        seller.setRegistrationDate(LocalDate.of(2024, 1, 1));
+
+        ads = new ArrayList<>();
+        List<AdSummaryDTO> summaries = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            Ad ad = new Ad();
+            ad.setId((long) i);
+            ad.setName("Ad number " + i);
+            ad.setDescription("Barely used, comes with the original box and all accessories. ".repeat(4));
+            ad.setImageUrl("https://images.example.com/ads/" + i + ".jpg");
+            ad.setPrice(10.0 + i);
+            ad.setCategory(Category.values()[i % Category.values().length]);
+            ad.setCity("Belgrade");
+            ad.setPostDate(LocalDateTime.of(2025, 1, 1, 12, 0).minusHours(i));
+            ad.setLastModified(ad.getPostDate().toInstant(ZoneOffset.UTC));
+            ad.setUser(seller);
+            ads.add(ad);
+            summaries.add(new AdSummaryDTO(ad.getId(), ad.getName(), ad.getDescription(), ad.getImageUrl(), ad.getPrice(),
+                    ad.getCategory(), ad.getCity(), ad.getPostDate(), seller.getId(), seller.getUsername(),
+                    seller.getPhoneNumber(), seller.getRegistrationDate()).withDescriptionPreview(200));
+        }
+        summaryPage = new PageImpl<>(summaries, PageRequest.of(0, pageSize), 1000);
+    }
+
+    @Benchmark
+    public List<AdDTO> toDtos() {
+        return ads.stream().map(AdDTO::new).toList();
+    }
+
+    @Benchmark
+    public byte[] writeAdPage() throws JsonProcessingException {
+        Page<AdDTO> page = new PageImpl<>(toDtos(), PageRequest.of(0, pageSize), 1000);
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] writeSummaryPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(summaryPage);
+    }
+}
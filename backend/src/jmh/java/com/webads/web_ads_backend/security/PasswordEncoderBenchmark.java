@@ -0,0 +1,51 @@
+package com.webads.web_ads_backend.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password hashing of registration and the password check of sign in, at the default work factor of
+ * auth.password.bcrypt-strength. Each operation is the CPU time one request takes on the password hashing pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+    @Param({"10"})
+    public int strength;
+
+    private RehashingBCryptPasswordEncoder passwordEncoder;
+
+    private String encodedPassword;
+
+    @Setup
+    public void setUp() {
+        passwordEncoder = new RehashingBCryptPasswordEncoder(strength);
+        encodedPassword = passwordEncoder.encode("password");
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordEncoder.encode("password");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches("password", encodedPassword);
+    }
+}
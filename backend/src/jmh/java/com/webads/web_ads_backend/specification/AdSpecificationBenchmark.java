@@ -0,0 +1,104 @@
+package com.webads.web_ads_backend.specification;
+
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
+import com.webads.web_ads_backend.model.Ad;
+import com.webads.web_ads_backend.model.RefreshToken;
+import com.webads.web_ads_backend.model.User;
+import com.webads.web_ads_backend.repository.AdRepositoryImpl;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filters of GET /api/ads, from the specification to the SQL query.
+ * Hibernate runs on an empty in-memory H2 database, so the listing measures building the criteria query,
+ * translating it to SQL and the JDBC round trip, not the database's work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdSpecificationBenchmark {
+
+    private static final Pageable PAGE = PageRequest.of(0, 20, Sort.by("postDate").descending());
+
+    private SessionFactory sessionFactory;
+
+    private EntityManager entityManager;
+
+    private AdRepositoryImpl adRepository;
+
+    @Setup
+    public void setUp() {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(Ad.class)
+                .addAnnotatedClass(User.class)
+                .addAnnotatedClass(RefreshToken.class)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:benchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.JAKARTA_JDBC_USER, "sa")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false")
+                .buildSessionFactory();
+        entityManager = sessionFactory.createEntityManager();
+        adRepository = new AdRepositoryImpl();
+        ReflectionTestUtils.setField(adRepository, "entityManager", entityManager);
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public Specification<Ad> build() {
+        return filters();
+    }
+
+    @Benchmark
+    public CriteriaQuery<Ad> toCriteria() {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Ad> query = cb.createQuery(Ad.class);
+        Root<Ad> root = query.from(Ad.class);
+        return query.where(filters().toPredicate(root, query, cb));
+    }
+
+    @Benchmark
+    public Page<AdSummaryDTO> findSummaries() {
+        return adRepository.findSummaries(filters(), PAGE, 200);
+    }
+
+    private static Specification<Ad> filters() {
+        return new AdSpecificationBuilder()
+                .withCategory("technology")
+                .withName("phone")
+                .withMinPrice(10.0)
+                .withMaxPrice(500.0)
+                .build();
+    }
+}
@@ -2,14 +2,25 @@ package com.webads.web_ads_backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableCaching
 public class WebAdsBackendApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(WebAdsBackendApplication.class, args);
 	}
 
+	/**
+	 * The scheduled jobs only serve requests, without a web server (e.g. the generate profile)
+	 * the scheduler thread would keep the application from exiting
+	 */
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnWebApplication
+	@EnableScheduling
+	static class SchedulingConfig {
+	}
+
 }
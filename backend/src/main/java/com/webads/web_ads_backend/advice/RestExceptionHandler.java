@@ -1,7 +1,10 @@
 package com.webads.web_ads_backend.advice;
 
+import com.webads.web_ads_backend.exceptions.ServerBusyException;
 import com.webads.web_ads_backend.exceptions.TokenRefreshException;
 import com.webads.web_ads_backend.exceptions.UserAlreadyExistsException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -37,6 +40,18 @@ public class RestExceptionHandler {
         return new ResponseEntity<>(responseBody, HttpStatus.FORBIDDEN);
     }
 
+    @ExceptionHandler(value = {ServerBusyException.class})
+    protected ResponseEntity<Object> handleServerBusy(ServerBusyException ex, WebRequest request) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler(value = {OptimisticLockingFailureException.class})
+    protected ResponseEntity<Object> handleConcurrentUpdate(OptimisticLockingFailureException ex, WebRequest request) {
+        return new ResponseEntity<>("The resource was changed by another request, reload it and try again.", HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(value = {TokenRefreshException.class})
     @ResponseStatus(HttpStatus.FORBIDDEN)
     public ResponseEntity<Object> handleTokenRefreshException(TokenRefreshException ex, WebRequest request) {
@@ -0,0 +1,106 @@
+package com.webads.web_ads_backend.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.webads.web_ads_backend.datasource.ReplicaRoutingDataSource;
+import com.webads.web_ads_backend.dto.AdDTO;
+import com.webads.web_ads_backend.repository.AdRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Read-through cache of ad details, keyed by ad ID.
+ * A missing entry is loaded once while concurrent readers of the same ID wait for it,
+ * and hot entries are reloaded in the background before they expire, so an expiring popular ad
+ * does not send a burst of queries to the database.
+ * On platform threads an ad is loaded on the request thread. With virtual threads it is loaded
+ * on a virtual thread of its own and not inside the cache's map lock, so waiting readers do not
+ * pin their carrier threads while the database is queried.
+ */
+@Component
+public class AdDetailCache {
+
+    private final LoadingCache<Long, AdDTO> cache;
+
+    @Autowired
+    public AdDetailCache(AdRepository adRepository,
+                         MeterRegistry meterRegistry,
+                         Environment environment,
+                         @Value("${ads.detail-cache.maximum-size:10000}") long maximumSize,
+                         @Value("${ads.detail-cache.expire-after-write:10m}") Duration expireAfterWrite,
+                         @Value("${ads.detail-cache.refresh-after-write:1m}") Duration refreshAfterWrite) {
+        this(adRepository, meterRegistry,
+                Threading.VIRTUAL.isActive(environment) ? new VirtualThreadTaskExecutor("ad-detail-") : null,
+                maximumSize, expireAfterWrite, refreshAfterWrite);
+    }
+
+    /**
+     * @param loader executor that loads missing ads, {@code null} to load them on the calling thread
+     */
+    AdDetailCache(AdRepository adRepository,
+                  MeterRegistry meterRegistry,
+                  Executor loader,
+                  long maximumSize,
+                  Duration expireAfterWrite,
+                  Duration refreshAfterWrite) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .refreshAfterWrite(refreshAfterWrite)
+                .recordStats();
+        //loaded from the primary, a lagging replica could put an ad back into the cache as it was before a change
+        CacheLoader<Long, AdDTO> load = id -> ReplicaRoutingDataSource.onPrimary(() -> adRepository.findById(id)).map(AdDTO::new).orElse(null);
+        this.cache = loader == null
+                ? builder.build(load)
+                : builder.executor(loader).buildAsync(load).synchronous();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "ads.detail");
+    }
+
+    /**
+     * Finds ad details, loading them from the database if they are not cached
+     *
+     * @param id ID of the ad
+     * @return {@link Optional} with the {@link AdDTO}, empty if there is no ad with the ID
+     */
+    public Optional<AdDTO> get(Long id) {
+        try {
+            return Optional.ofNullable(cache.get(id));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Finds ad details only if they are already cached, never waits for a load
+     *
+     * @param id ID of the ad
+     * @return {@link Optional} with the cached {@link AdDTO}, empty if it is not cached or still loading
+     */
+    public Optional<AdDTO> getIfPresent(Long id) {
+        return Optional.ofNullable(cache.getIfPresent(id));
+    }
+
+    /**
+     * Removes the cached details of an ad, has to be called after every change of the ad is committed
+     *
+     * @param id ID of the ad
+     */
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+}
@@ -0,0 +1,80 @@
+package com.webads.web_ads_backend.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate second-level cache backed by Caffeine through JCache.
+ * Every region is created here with its own size and time to live, Hibernate fails on start if an entity
+ * or query uses a region that is not listed, so no region can grow without a bound.
+ * Each application context gets its own cache manager.
+ * Hits, misses and puts of the regions are published as hibernate.* metrics when statistics are enabled.
+ */
+@Configuration
+public class HibernateCacheConfig implements DisposableBean {
+
+    public static final String USERS_REGION = "users";
+    public static final String USERS_BY_USERNAME_REGION = "users-by-username";
+    public static final String ADS_REGION = "ads";
+    public static final String AD_QUERIES_REGION = "ad-queries";
+
+    private static final String DEFAULT_QUERY_RESULTS_REGION = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    private final CacheManager cacheManager;
+
+    public HibernateCacheConfig(@Value("${db.l2-cache.users.maximum-size:10000}") long usersMaximumSize,
+                                @Value("${db.l2-cache.users.expire-after-write:30m}") Duration usersExpireAfterWrite,
+                                @Value("${db.l2-cache.ads.maximum-size:10000}") long adsMaximumSize,
+                                @Value("${db.l2-cache.ads.expire-after-write:10m}") Duration adsExpireAfterWrite,
+                                @Value("${db.l2-cache.queries.maximum-size:1000}") long queriesMaximumSize,
+                                @Value("${db.l2-cache.queries.expire-after-write:5m}") Duration queriesExpireAfterWrite) {
+        this.cacheManager = new CaffeineCachingProvider()
+                .getCacheManager(URI.create("hibernate-l2-cache"), getClass().getClassLoader());
+
+        createRegion(USERS_REGION, usersMaximumSize, usersExpireAfterWrite);
+        createRegion(USERS_BY_USERNAME_REGION, usersMaximumSize, usersExpireAfterWrite);
+        createRegion(ADS_REGION, adsMaximumSize, adsExpireAfterWrite);
+        createRegion(AD_QUERIES_REGION, queriesMaximumSize, queriesExpireAfterWrite);
+        createRegion(DEFAULT_QUERY_RESULTS_REGION, queriesMaximumSize, queriesExpireAfterWrite);
+        //query results are checked against the last update time of their tables, so timestamps must never be evicted
+        createRegion(UPDATE_TIMESTAMPS_REGION, null, null);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer() {
+        return properties -> {
+            properties.put("hibernate.cache.region.factory_class", ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    @Override
+    public void destroy() {
+        cacheManager.close();
+    }
+
+    private void createRegion(String name, Long maximumSize, Duration expireAfterWrite) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        if (maximumSize != null) {
+            configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        }
+        if (expireAfterWrite != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+        }
+        cacheManager.createCache(name, configuration);
+    }
+
+}
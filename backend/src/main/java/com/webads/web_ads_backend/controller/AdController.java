@@ -1,36 +1,70 @@
 package com.webads.web_ads_backend.controller;
 
 import com.webads.web_ads_backend.dto.AdDTO;
+import com.webads.web_ads_backend.dto.AdFacetsDTO;
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
 import com.webads.web_ads_backend.dto.CreateAdDTO;
+import com.webads.web_ads_backend.dto.CreateAdsBatchDTO;
+import com.webads.web_ads_backend.dto.CursorPageDTO;
+import com.webads.web_ads_backend.exceptions.ServerBusyException;
+import com.webads.web_ads_backend.export.AdExportFormat;
+import com.webads.web_ads_backend.export.AdExportWriter;
 import com.webads.web_ads_backend.model.Ad;
-import com.webads.web_ads_backend.model.User;
+import com.webads.web_ads_backend.security.AuthenticatedUser;
 import com.webads.web_ads_backend.service.AdService;
-import com.webads.web_ads_backend.service.UserService;
+import com.webads.web_ads_backend.specification.AdCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
 
 @RestController
+@Timed(value = "controller.requests", description = "Time spent in controller methods", histogram = true)
 @RequestMapping("/api/ads")
 public class AdController {
 
     private final AdService adService;
 
-    private final UserService userService;
+    private final ObjectMapper objectMapper;
+
+    private final Duration exportTimeout;
+
+    private final int maxPageSize;
+
+    /**
+     * Permits of the running exports, each of them holds a database connection until it is streamed
+     */
+    private final Semaphore runningExports;
 
     @Autowired
-    public AdController(AdService adService, UserService userService){
+    public AdController(AdService adService, ObjectMapper objectMapper,
+                        @Value("${ads.export.timeout:30m}") Duration exportTimeout,
+                        @Value("${ads.export.max-concurrent:2}") int maxConcurrentExports,
+                        @Value("${ads.listing.max-page-size:100}") int maxPageSize){
         this.adService = adService;
-        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.exportTimeout = exportTimeout;
+        this.runningExports = new Semaphore(maxConcurrentExports);
+        this.maxPageSize = maxPageSize;
     }
 
     @PostMapping
@@ -43,9 +77,20 @@ public class AdController {
         return new ResponseEntity<>(adDTO, HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<AdDTO>> createAds(@Valid @RequestBody CreateAdsBatchDTO createAdsBatchDTO, Authentication authentication) {
+        String username = authentication.getName();
+
+        List<AdDTO> adDTOs = adService.createAds(createAdsBatchDTO.getAds(), username).stream()
+                .map(AdDTO::new)
+                .toList();
+
+        return new ResponseEntity<>(adDTOs, HttpStatus.CREATED);
+    }
+
 
     @GetMapping
-    public ResponseEntity<Page<AdDTO>> getAllAds(
+    public ResponseEntity<Page<AdSummaryDTO>> getAllAds(
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String name,
             @RequestParam(required = false) Double minPrice,
@@ -55,43 +100,140 @@ public class AdController {
             @RequestParam(defaultValue = "20") int size,
             Authentication authentication) {
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("postDate").descending());
+        Pageable pageable = PageRequest.of(page, Math.min(size, maxPageSize), Sort.by("postDate").descending());
+
+        Long userId = null;
+        if (showMineOnly) {
+            userId = currentUserId(authentication);
+            if (userId == null) {
+                return new ResponseEntity<>(null, HttpStatus.FORBIDDEN);
+            }
+        }
+
+        Page<AdSummaryDTO> adPage = adService.getAllAds(category, name, minPrice, maxPrice, userId, pageable);
+
+        return ResponseEntity.ok()
+                .eTag(ETags.ofContent(adPage.getContent(), adPage.getTotalElements()))
+                .body(adPage);
+    }
+
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorPageDTO<AdSummaryDTO>> getAdsByCursor(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "false") boolean showMineOnly,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication authentication) {
+
+        Long userId = null;
+        if (showMineOnly) {
+            userId = currentUserId(authentication);
+            if (userId == null) {
+                return new ResponseEntity<>(null, HttpStatus.FORBIDDEN);
+            }
+        }
+
+        Slice<AdSummaryDTO> adSlice = adService.getAdsAfterCursor(category, name, minPrice, maxPrice, userId, AdCursor.decode(cursor), Math.min(size, maxPageSize));
+        List<AdSummaryDTO> content = adSlice.getContent();
+        String nextCursor = adSlice.hasNext() ? AdCursor.after(content.get(content.size() - 1)).encode() : null;
+
+        return ResponseEntity.ok()
+                .eTag(ETags.ofContent(content, nextCursor))
+                .body(new CursorPageDTO<>(content, nextCursor, adSlice.hasNext()));
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<AdFacetsDTO> getFacets(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "false") boolean showMineOnly,
+            Authentication authentication) {
 
         Long userId = null;
         if (showMineOnly) {
-            if (authentication != null && !(authentication instanceof AnonymousAuthenticationToken)) {
-                User user = (User) userService.getUserByUsername(authentication.getName());
-                userId = user.getId();
-            } else {
+            userId = currentUserId(authentication);
+            if (userId == null) {
                 return new ResponseEntity<>(null, HttpStatus.FORBIDDEN);
             }
         }
 
-        Page<Ad> adPage = adService.getAllAds(category, name, minPrice, maxPrice, userId, pageable);
-        Page<AdDTO> adDtoPage = adPage.map(AdDTO::new);
+        return ResponseEntity.ok(adService.getFacets(category, name, minPrice, maxPrice, userId));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAds(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "false") boolean showMineOnly,
+            @RequestParam(defaultValue = "ndjson") String format,
+            Authentication authentication,
+            WebRequest webRequest) {
+
+        AdExportFormat exportFormat = AdExportFormat.fromParameter(format);
+        Long userId = null;
+        if (showMineOnly) {
+            userId = currentUserId(authentication);
+            if (userId == null) {
+                return new ResponseEntity<>(null, HttpStatus.FORBIDDEN);
+            }
+        }
 
-        return ResponseEntity.ok(adDtoPage);
+        if (!runningExports.tryAcquire()) {
+            throw new ServerBusyException("Too many exports are running, try again later.");
+        }
+        Long ownerId = userId;
+        StreamingResponseBody body = outputStream -> {
+            try {
+                AdExportWriter writer = new AdExportWriter(exportFormat, outputStream, objectMapper);
+                adService.exportAds(category, name, minPrice, maxPrice, ownerId, writer);
+                writer.finish();
+            } finally {
+                runningExports.release();
+            }
+        };
+        //only the export may take longer than spring.mvc.async.request-timeout, the body is streamed within this request
+        WebAsyncUtils.getAsyncManager(webRequest).getAsyncWebRequest().setTimeout(exportTimeout.toMillis());
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"ads." + exportFormat.getFileExtension() + "\"")
+                .body(body);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<AdDTO> getAdById(@PathVariable Long id) {
-        Ad ad = adService.getAd(id);
-        AdDTO adDTO = new AdDTO(ad);
-        return ResponseEntity.ok(adDTO);
+        AdDTO adDTO = adService.getAdDetails(id);
+        return ResponseEntity.ok()
+                .eTag(ETags.ofVersion(adDTO.getId(), adDTO.getVersion()))
+                .lastModified(adDTO.getLastModified())
+                .body(adDTO);
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<AdDTO> updateAd(@PathVariable Long id, @Valid @RequestBody CreateAdDTO updateDTO, Authentication authentication) {
-        String username = authentication.getName();
-        Ad updatedAd = adService.updateAd(id, updateDTO, username);
+        Ad updatedAd = adService.updateAd(id, updateDTO, currentUserId(authentication));
         AdDTO adDTO = new AdDTO(updatedAd);
         return ResponseEntity.ok(adDTO);
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteAd(@PathVariable Long id, Authentication authentication) {
-        String username = authentication.getName();
-        adService.deleteAd(id, username);
+        adService.deleteAd(id, currentUserId(authentication));
         return ResponseEntity.noContent().build();
     }
+
+    private Long currentUserId(Authentication authentication) {
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+        return user.getId();
+    }
 }
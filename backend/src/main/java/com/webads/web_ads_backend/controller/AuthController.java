@@ -1,13 +1,13 @@
 package com.webads.web_ads_backend.controller;
 
 import com.webads.web_ads_backend.dto.*;
-import com.webads.web_ads_backend.exceptions.TokenRefreshException;
-import com.webads.web_ads_backend.model.RefreshToken;
 import com.webads.web_ads_backend.model.User;
 import com.webads.web_ads_backend.service.RefreshTokenService;
 import com.webads.web_ads_backend.service.UserService;
+import io.micrometer.core.annotation.Timed;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -15,14 +15,17 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.security.authentication.AuthenticationManager;
+import com.webads.web_ads_backend.security.AuthenticatedUser;
 import com.webads.web_ads_backend.security.JwtUtil;
+import com.webads.web_ads_backend.security.PasswordHashingExecutor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 
-import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RestController
+@Timed(value = "controller.requests", description = "Time spent in controller methods", histogram = true)
 @RequestMapping("/api/auth")
 public class AuthController {
 
@@ -34,55 +37,66 @@ public class AuthController {
 
     private final RefreshTokenService refreshTokenService;
 
+    private final PasswordHashingExecutor passwordHashingExecutor;
+
+    private final Executor taskExecutor;
+
     @Autowired
-    public AuthController(UserService userService, AuthenticationManager authenticationManager, JwtUtil jwtUtil, RefreshTokenService refreshTokenService){
+    public AuthController(UserService userService, AuthenticationManager authenticationManager, JwtUtil jwtUtil,
+                          RefreshTokenService refreshTokenService, PasswordHashingExecutor passwordHashingExecutor,
+                          @Qualifier("applicationTaskExecutor") Executor taskExecutor){
         this.userService = userService;
         this.authenticationManager = authenticationManager;
         this.jwtUtil = jwtUtil;
         this.refreshTokenService = refreshTokenService;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.taskExecutor = taskExecutor;
 
     }
 
+    /**
+     * Only password hashing runs on {@link PasswordHashingExecutor}, the request thread is released until it is done.
+     * The user is saved on the application task executor, so the hashing threads never wait for the database.
+     */
     @PostMapping("/register")
-    public ResponseEntity<UserDTO> registerUser(@Valid @RequestBody UserRegistrationDTO registrationDTO) {
-        User registeredUser = userService.register(registrationDTO);
-
-        UserDTO userDTO = new UserDTO(registeredUser);
-        return new ResponseEntity<>(userDTO, HttpStatus.CREATED);
+    public CompletableFuture<ResponseEntity<UserDTO>> registerUser(@Valid @RequestBody UserRegistrationDTO registrationDTO) {
+        userService.checkUsernameAvailable(registrationDTO.getUsername());
+        return passwordHashingExecutor.submit(() -> userService.hashPassword(registrationDTO.getPassword()))
+                .thenApplyAsync(passwordHash -> userService.register(registrationDTO, passwordHash), taskExecutor)
+                .thenApply(registeredUser -> new ResponseEntity<>(new UserDTO(registeredUser), HttpStatus.CREATED));
     }
 
+    /**
+     * The password check runs on {@link PasswordHashingExecutor}, the request thread is released until it is done.
+     * The refresh token is stored on the application task executor.
+     */
     @PostMapping("/login")
-    public ResponseEntity<LoginResponseDTO> login(@RequestBody LoginRequestDTO loginRequest) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword())
-        );
+    public CompletableFuture<ResponseEntity<LoginResponseDTO>> login(@RequestBody LoginRequestDTO loginRequest) {
+        return passwordHashingExecutor.submit(() -> authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword())))
+                .thenApplyAsync(authentication -> {
+                    AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+                    String token = jwtUtil.generateToken(user);
 
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        String token = jwtUtil.generateToken(userDetails);
+                    String refreshToken = refreshTokenService.createRefreshToken(user.getId());
 
-        RefreshToken refreshToken = refreshTokenService.createRefreshToken(userDetails.getUsername());
-
-        return ResponseEntity.ok(new LoginResponseDTO(token, refreshToken.getToken(), userDetails.getUsername()));
+                    return ResponseEntity.ok(new LoginResponseDTO(token, refreshToken, user.getUsername()));
+                }, taskExecutor);
     }
 
     @PostMapping("/refresh")
     public ResponseEntity<?> refreshToken(@RequestBody TokenRefreshRequestDTO request) {
         String requestRefreshToken = request.getRefreshToken();
 
-        return refreshTokenService.findByToken(requestRefreshToken)
-                .map(refreshTokenService::verifyExpiration)
-                .map(RefreshToken::getUser)
-                .map(user -> {
-                    String token = jwtUtil.generateToken(new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), new ArrayList<>()));
-                    return ResponseEntity.ok(new TokenRefreshResponseDTO(token, requestRefreshToken));
-                })
-                .orElseThrow(() -> new TokenRefreshException(requestRefreshToken, "Invalid refresh token"));
+        User user = refreshTokenService.verify(requestRefreshToken);
+        String token = jwtUtil.generateToken(new AuthenticatedUser(user.getId(), user.getUsername()));
+
+        return ResponseEntity.ok(new TokenRefreshResponseDTO(token, requestRefreshToken));
     }
 
     @PostMapping("/logout")
     public ResponseEntity<?> logoutUser(Authentication authentication) {
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        User user = userService.getUserByUsername(userDetails.getUsername());
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
         refreshTokenService.deleteByUserId(user.getId());
         return ResponseEntity.ok("Log out successful");
     }
@@ -0,0 +1,44 @@
+package com.webads.web_ads_backend.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Strong entity tags for ad responses.
+ * When a response carries an ETag, Spring answers a matching If-None-Match with 304 without writing the body.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * @return tag of a single versioned resource
+     */
+    static String ofVersion(Long id, long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    /**
+     * Tag of a listing, a digest of everything the listing contains
+     * Listing items are records, so their string form covers every field that is returned
+     *
+     * @param parts listing content and metadata such as the total count
+     * @return quoted tag
+     */
+    static String ofContent(Object... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object part : parts) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            byte[] hash = digest.digest();
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.webads.web_ads_backend.controller;
+
+import com.webads.web_ads_backend.dto.AdDTO;
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
+import com.webads.web_ads_backend.security.AuthenticatedUser;
+import com.webads.web_ads_backend.service.ReactiveAdService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking read API with the same parameters and responses as the GET endpoints of {@link AdController}.
+ * The request thread is released while the query runs, the response is written when the {@link Mono} completes.
+ */
+@RestController
+@RequestMapping("/api/rx/ads")
+@ConditionalOnProperty(name = "ads.reactive.enabled", havingValue = "true")
+public class ReactiveAdController {
+
+    private final ReactiveAdService reactiveAdService;
+
+    private final int maxPageSize;
+
+    @Autowired
+    public ReactiveAdController(ReactiveAdService reactiveAdService,
+                                @Value("${ads.listing.max-page-size:100}") int maxPageSize) {
+        this.reactiveAdService = reactiveAdService;
+        this.maxPageSize = maxPageSize;
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<Page<AdSummaryDTO>>> getAllAds(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "false") boolean showMineOnly,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication authentication) {
+
+        Long userId = null;
+        if (showMineOnly) {
+            userId = currentUserId(authentication);
+            if (userId == null) {
+                return Mono.just(new ResponseEntity<>(null, HttpStatus.FORBIDDEN));
+            }
+        }
+
+        Pageable pageable = PageRequest.of(page, Math.min(size, maxPageSize), Sort.by("postDate").descending());
+
+        return reactiveAdService.getAllAds(category, name, minPrice, maxPrice, userId, pageable)
+                .map(adPage -> ResponseEntity.ok()
+                        .eTag(ETags.ofContent(adPage.getContent(), adPage.getTotalElements()))
+                        .body(adPage));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<AdDTO>> getAdById(@PathVariable Long id) {
+        return reactiveAdService.getAdDetails(id)
+                .map(adDTO -> ResponseEntity.ok()
+                        .eTag(ETags.ofVersion(adDTO.getId(), adDTO.getVersion()))
+                        .lastModified(adDTO.getLastModified())
+                        .body(adDTO));
+    }
+
+    private Long currentUserId(Authentication authentication) {
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+        return user.getId();
+    }
+}
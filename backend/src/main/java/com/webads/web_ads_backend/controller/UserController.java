@@ -2,6 +2,7 @@ package com.webads.web_ads_backend.controller;
 
 import com.webads.web_ads_backend.model.User;
 import com.webads.web_ads_backend.service.UserService;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -11,6 +12,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
+@Timed(value = "controller.requests", description = "Time spent in controller methods", histogram = true)
 @RequestMapping("/api/users")
 public class UserController {
 
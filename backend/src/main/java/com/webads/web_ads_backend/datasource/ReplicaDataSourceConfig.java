@@ -0,0 +1,100 @@
+package com.webads.web_ads_backend.datasource;
+
+import com.webads.web_ads_backend.security.AuthenticatedUser;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data sources for reading from replicas, replaces the single data source of Spring Boot when enabled.
+ * The primary pool is configured by the usual spring.datasource.* properties, the replica pools share its
+ * credentials and have short connection timeouts, so a replica that is down costs little before it is taken out.
+ * Flyway migrates the primary only.
+ */
+@Configuration
+@ConditionalOnProperty(name = "db.replicas.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig implements DisposableBean {
+
+    private final List<HikariDataSource> replicaPools = new ArrayList<>();
+
+    @Value("${db.replicas.connection-timeout:2s}")
+    private Duration connectionTimeout;
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties properties,
+                                                             MeterRegistry meterRegistry,
+                                                             @Value("${db.replicas.urls}") List<String> urls,
+                                                             @Value("${db.replicas.pool-size:10}") int poolSize,
+                                                             @Value("${db.replicas.stickiness:5s}") Duration stickiness) {
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("db.replicas.enabled is true but db.replicas.urls is empty");
+        }
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : urls) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + (replicas.size() + 1));
+            config.setJdbcUrl(url.trim());
+            config.setUsername(properties.determineUsername());
+            config.setPassword(properties.determinePassword());
+            config.setMaximumPoolSize(poolSize);
+            config.setConnectionTimeout(connectionTimeout.toMillis());
+            config.setReadOnly(true);
+            //a replica that is down on start is taken out by the first health check instead of failing the start
+            config.setInitializationFailTimeout(-1);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            HikariDataSource pool = new HikariDataSource(config);
+            replicaPools.add(pool);
+            replicas.put(config.getPoolName(), pool);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, ReplicaDataSourceConfig::currentUserId, stickiness);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Override
+    public void destroy() {
+        replicaPools.forEach(HikariDataSource::close);
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.getId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.webads.web_ads_backend.datasource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Checks the replicas periodically, a replica taken out after a failed connection gets reads again once it answers
+ */
+@Component
+@ConditionalOnProperty(name = "db.replicas.enabled", havingValue = "true")
+public class ReplicaHealthCheck {
+
+    private final ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Value("${db.replicas.connection-timeout:2s}")
+    private Duration timeout;
+
+    @Autowired
+    public ReplicaHealthCheck(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        this.replicaRoutingDataSource = replicaRoutingDataSource;
+    }
+
+    @Scheduled(fixedDelayString = "${db.replicas.health-check-interval:5s}")
+    public void checkReplicas() {
+        replicaRoutingDataSource.checkReplicas(timeout);
+    }
+}
@@ -0,0 +1,194 @@
+package com.webads.web_ads_backend.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections of read-only transactions to the replicas, round robin, and everything else to the primary.
+ * Has to be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, the transaction
+ * manager asks for a connection before the transaction is marked read-only.
+ * <ul>
+ *     <li>reads of a user go to the primary for a while after the user's last committed write, so users see their own changes</li>
+ *     <li>a replica that fails to give a connection is skipped until a health check reaches it again,
+ *     the connection is taken from the primary instead</li>
+ *     <li>reads that are followed by writes based on what they found can be kept on the primary with {@link #onPrimary(Supplier)}</li>
+ * </ul>
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+
+    private final Map<String, DataSource> replicas;
+
+    private final Object healthLock = new Object();
+
+    private volatile List<String> healthyReplicas;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Supplier<Long> currentUserId;
+
+    private final Cache<Long, Boolean> recentWriters;
+
+    /**
+     * @param primary data source of the primary
+     * @param replicas data sources of the replicas by name, in the order they are used
+     * @param currentUserId ID of the user of the current request, null if there is none
+     * @param stickiness how long reads of a user stay on the primary after the user's last write
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Supplier<Long> currentUserId, Duration stickiness) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.healthyReplicas = List.copyOf(replicas.keySet());
+        this.currentUserId = currentUserId;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(stickiness)
+                .build();
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Runs an action with all its reads on the primary, also the ones in read-only transactions
+     *
+     * @param action action to run
+     * @return result of the action
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = FORCE_PRIMARY.get();
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                FORCE_PRIMARY.remove();
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String key = (String) determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return primary.getConnection();
+        }
+        try {
+            return replicas.get(key).getConnection();
+        } catch (SQLException e) {
+            markDown(key, e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            rememberWriter();
+            return PRIMARY;
+        }
+        if (FORCE_PRIMARY.get() != null) {
+            return PRIMARY;
+        }
+        Long userId = currentUserId.get();
+        if (userId != null && recentWriters.getIfPresent(userId) != null) {
+            return PRIMARY;
+        }
+        List<String> healthy = healthyReplicas();
+        if (healthy.isEmpty()) {
+            return PRIMARY;
+        }
+        return healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size()));
+    }
+
+    /**
+     * Tries every replica and puts the reachable ones back into rotation, the unreachable ones are taken out of it
+     *
+     * @param timeout how long to wait for a replica to answer
+     */
+    public void checkReplicas(Duration timeout) {
+        List<String> healthy = new ArrayList<>();
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            try (Connection connection = replica.getValue().getConnection()) {
+                if (connection.isValid((int) Math.max(1, timeout.toSeconds()))) {
+                    healthy.add(replica.getKey());
+                }
+            } catch (SQLException e) {
+                logger.debug("replica {} failed the health check", replica.getKey(), e);
+            }
+        }
+        synchronized (healthLock) {
+            List<String> previous = healthyReplicas;
+            for (String name : replicas.keySet()) {
+                if (healthy.contains(name) && !previous.contains(name)) {
+                    logger.info("replica {} is reachable again, sending reads to it", name);
+                } else if (!healthy.contains(name) && previous.contains(name)) {
+                    logger.warn("replica {} failed the health check, sending its reads to the primary", name);
+                }
+            }
+            healthyReplicas = List.copyOf(healthy);
+        }
+    }
+
+    /**
+     * @return names of the replicas that currently get reads
+     */
+    public List<String> healthyReplicas() {
+        return healthyReplicas;
+    }
+
+    private void markDown(String name, SQLException e) {
+        synchronized (healthLock) {
+            if (healthyReplicas.contains(name)) {
+                List<String> healthy = new ArrayList<>(healthyReplicas);
+                healthy.remove(name);
+                healthyReplicas = List.copyOf(healthy);
+                logger.warn("replica {} did not give a connection, sending its reads to the primary: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The user is remembered once the transaction is committed, so reads that follow the commit see the write.
+     * Connections taken outside of transactions do not count as writes.
+     */
+    private void rememberWriter() {
+        Long userId = currentUserId.get();
+        if (userId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(userId, Boolean.TRUE);
+            }
+        });
+    }
+}
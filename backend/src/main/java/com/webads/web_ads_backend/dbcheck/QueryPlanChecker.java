@@ -0,0 +1,155 @@
+package com.webads.web_ads_backend.dbcheck;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Runs EXPLAIN for every combination of the ad listing filters and reports the ones not served by an index.
+ * A combination passes when at least one of its predicates is an index condition of a scan on ads, a full scan of the
+ * post_date index with the predicates as a plain Filter does not count. The sample values are selective, so the
+ * planner prefers an index on the filtered columns whenever there is one.
+ */
+@Component
+public class QueryPlanChecker {
+
+    private static final String SEQ_SCAN = "Seq Scan on ads";
+
+    private static final String INDEX_COND = "Index Cond:";
+
+    private static final Filter MIN_PRICE = new Filter("minPrice", "a.price >= ?", "price", 1_000_000.0);
+
+    private static final Filter MAX_PRICE = new Filter("maxPrice", "a.price <= ?", "price", 0.01);
+
+    //lower bound used together with MAX_PRICE, the planner estimates a contradicting range like any unselective one
+    private static final double RANGE_MIN_PRICE = 0.005;
+
+    static final List<Filter> FILTERS = List.of(
+            new Filter("category", "a.category = ?", "category", "TOOLS"),
+            new Filter("name", "lower(a.name) like ?", "lower((name)", "%qzx%"),
+            MIN_PRICE,
+            MAX_PRICE,
+            new Filter("userId", "a.user_id = ?", "user_id", 1L),
+            new Filter("cursor", "a.post_date <= ? and (a.post_date < ? or a.id < ?)", "post_date",
+                    Timestamp.valueOf(LocalDateTime.now()), Timestamp.valueOf(LocalDateTime.now()), Long.MAX_VALUE));
+
+    private final Logger logger = LoggerFactory.getLogger(QueryPlanChecker.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${db.explain-check:false}")
+    private boolean checkOnStartup;
+
+    @Autowired
+    public QueryPlanChecker(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkOnStartup() {
+        if (!checkOnStartup) {
+            return;
+        }
+        List<String> unindexed = check();
+        if (!unindexed.isEmpty()) {
+            throw new IllegalStateException("ad filter combinations without an index: " + unindexed);
+        }
+        logger.info("query plan check passed, every filter combination uses an index");
+    }
+
+    /**
+     * Explains the listing query for every filter combination
+     *
+     * @return filter combinations none of whose predicates is an index condition on ads
+     */
+    public List<String> check() {
+        List<String> unindexed = new ArrayList<>();
+        for (int mask = 0; mask < (1 << FILTERS.size()); mask++) {
+            StringJoiner where = new StringJoiner(" and ", " where ", "").setEmptyValue("");
+            StringJoiner combination = new StringJoiner("+").setEmptyValue("no filters");
+            List<Filter> filters = new ArrayList<>();
+            List<Object> params = new ArrayList<>();
+            for (int i = 0; i < FILTERS.size(); i++) {
+                if ((mask & (1 << i)) != 0) {
+                    Filter filter = FILTERS.get(i);
+                    where.add(filter.condition());
+                    combination.add(filter.name());
+                    filters.add(filter);
+                    params.addAll(List.of(filter.sampleValues()));
+                }
+            }
+            if (filters.contains(MIN_PRICE) && filters.contains(MAX_PRICE)) {
+                params.set(params.indexOf(MIN_PRICE.sampleValues()[0]), RANGE_MIN_PRICE);
+            }
+
+            String sql = "explain select a.id from ads a join users u on u.id = a.user_id" + where
+                    + " order by a.post_date desc, a.id desc limit 20";
+            String plan = explain(sql, params.toArray());
+            if (!usesIndex(plan, filters)) {
+                logger.warn("no index for filters [{}]:\n{}", combination, plan);
+                unindexed.add(combination.toString());
+            }
+        }
+        return unindexed;
+    }
+
+    /**
+     * Checks a plan of the listing query
+     *
+     * @param plan    EXPLAIN output, one node or node detail per line
+     * @param filters filters of the query, without any only a sequential scan fails
+     * @return true when the plan has no sequential scan on ads and, with filters, one of their predicates is an index
+     * condition of a scan on ads
+     */
+    static boolean usesIndex(String plan, List<Filter> filters) {
+        if (plan.contains(SEQ_SCAN)) {
+            return false;
+        }
+        if (filters.isEmpty()) {
+            return true;
+        }
+        boolean scanOnAds = false;
+        for (String line : plan.split("\n")) {
+            String trimmed = line.strip();
+            if (trimmed.startsWith("->") || !line.startsWith(" ")) {
+                //ads_* are the indexes of ads, the bitmap index scan line names only the index
+                scanOnAds = trimmed.contains(" on ads ") || trimmed.contains(" on ads_");
+            } else if (scanOnAds && trimmed.startsWith(INDEX_COND)) {
+                for (Filter filter : filters) {
+                    if (trimmed.contains(filter.column())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private String explain(String sql, Object[] params) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("set local enable_seqscan = off");
+            return String.join("\n", jdbcTemplate.queryForList(sql, String.class, params));
+        });
+    }
+
+    /**
+     * @param column how the filtered column appears in an index condition of the plan
+     */
+    record Filter(String name, String condition, String column, Object... sampleValues) {
+    }
+}
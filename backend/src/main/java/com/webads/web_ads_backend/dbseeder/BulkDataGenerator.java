@@ -0,0 +1,406 @@
+package com.webads.web_ads_backend.dbseeder;
+
+import com.github.javafaker.Faker;
+import com.webads.web_ads_backend.model.Category;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates large, realistic data sets of users and ads.
+ * Rows are generated in parallel chunks, each chunk with its own random seeded from the base seed and its own range of ids,
+ * so the same configuration always produces the same data, whatever order the chunks run in.
+ * Postgres is loaded with COPY, other databases with JDBC batches.
+ */
+@Component
+public class BulkDataGenerator {
+
+    private static final String USERS_COLUMNS = "users (id, username, password, phone_number, registration_date)";
+    private static final String ADS_COLUMNS = "ads (id, name, description, image_url, price, category, city, post_date, user_id, version, last_modified)";
+    /**
+     * Same as the allocation size of the entity id generators, one nextval reserves the block of ids below the returned value
+     */
+    private static final int ID_BLOCK_SIZE = 50;
+    private static final int POOL_SIZE = 500;
+
+    private final Logger logger = LoggerFactory.getLogger(BulkDataGenerator.class);
+
+    private final DataSource dataSource;
+
+    private final PasswordEncoder passwordEncoder;
+
+    @Value("${db.generator.seed:42}")
+    private long seed;
+
+    @Value("${db.generator.threads:0}")
+    private int threads;
+
+    @Value("${db.generator.chunk-size:50000}")
+    private int chunkSize;
+
+    @Value("${db.generator.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${db.generator.password:password}")
+    private String password;
+
+    /**
+     * Zipf exponent of ads per seller, higher values give a few very active sellers
+     */
+    @Value("${db.generator.seller-skew:1.1}")
+    private double sellerSkew;
+
+    /**
+     * Zipf exponent of ads per category
+     */
+    @Value("${db.generator.category-skew:0.8}")
+    private double categorySkew;
+
+    /**
+     * Prices follow a log-normal distribution around the median
+     */
+    @Value("${db.generator.price-median:60}")
+    private double priceMedian;
+
+    @Value("${db.generator.price-sigma:1.2}")
+    private double priceSigma;
+
+    @Value("${db.generator.max-age-days:365}")
+    private int maxAgeDays;
+
+    @Autowired
+    public BulkDataGenerator(DataSource dataSource, PasswordEncoder passwordEncoder) {
+        this.dataSource = dataSource;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    /**
+     * Generates and inserts users and ads, unless the database already has users,
+     * so restarting with seeding enabled keeps the data of the first start
+     *
+     * @param userCount number of users to insert
+     * @param adCount number of ads to insert, spread over the inserted users
+     */
+    public void generate(int userCount, long adCount) {
+        if (hasUsers()) {
+            logger.info("database already has users, skipping data generation");
+            return;
+        }
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        Vocabulary vocabulary = new Vocabulary(seed);
+        String passwordHash = passwordEncoder.encode(password);
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            long start = System.nanoTime();
+            long firstUserId = reserveIds("users_id_seq", userCount);
+            runChunks(executor, userCount, (chunk, from, to) -> insertUsers(chunk, from, to, firstUserId, vocabulary, passwordHash, now));
+            logger.info("{} users generated in {} ms", userCount, (System.nanoTime() - start) / 1_000_000);
+
+            if (userCount == 0) {
+                logger.warn("no users generated, skipping ads");
+                return;
+            }
+            ZipfSampler sellers = new ZipfSampler(userCount, sellerSkew);
+            ZipfSampler categories = new ZipfSampler(Category.values().length, categorySkew);
+
+            start = System.nanoTime();
+            long firstAdId = reserveIds("ads_id_seq", adCount);
+            runChunks(executor, adCount, (chunk, from, to) -> insertAds(chunk, from, to, firstAdId, vocabulary, firstUserId, sellers, categories, now));
+            long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            logger.info("{} ads generated in {} ms ({} ads/s)", adCount, millis, adCount * 1000 / millis);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runChunks(ExecutorService executor, long total, ChunkTask task) {
+        List<Future<?>> futures = new ArrayList<>();
+        long chunks = (total + chunkSize - 1) / chunkSize;
+        for (long chunk = 0; chunk < chunks; chunk++) {
+            long from = chunk * chunkSize;
+            long to = Math.min(total, from + chunkSize);
+            long chunkIndex = chunk;
+            futures.add(executor.submit(() -> {
+                task.run(chunkIndex, from, to);
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Data generation interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Data generation failed", e.getCause());
+        }
+    }
+
+    private void insertUsers(long chunk, long from, long to, long firstId, Vocabulary vocabulary, String passwordHash,
+                             LocalDateTime now) throws SQLException, IOException {
+        SplittableRandom random = chunkRandom(1, chunk);
+        try (Connection connection = dataSource.getConnection();
+             RowWriter writer = rowWriter(connection, USERS_COLUMNS, 5)) {
+            for (long i = from; i < to; i++) {
+                String username = vocabulary.pick(vocabulary.firstNames, random).toLowerCase(Locale.ROOT) + "."
+                        + vocabulary.pick(vocabulary.lastNames, random).toLowerCase(Locale.ROOT) + i;
+                String phoneNumber = "06" + (10_000_000 + random.nextInt(90_000_000));
+                LocalDate registrationDate = now.toLocalDate().minusDays(random.nextInt(maxAgeDays * 3) + 1L);
+                writer.write(firstId + i, username, passwordHash, phoneNumber, Date.valueOf(registrationDate));
+            }
+        }
+    }
+
+    private void insertAds(long chunk, long from, long to, long firstId, Vocabulary vocabulary, long firstUserId,
+                           ZipfSampler sellers, ZipfSampler categories, LocalDateTime now) throws SQLException, IOException {
+        SplittableRandom random = chunkRandom(2, chunk);
+        Category[] categoryValues = Category.values();
+        double mu = Math.log(priceMedian);
+        try (Connection connection = dataSource.getConnection();
+             RowWriter writer = rowWriter(connection, ADS_COLUMNS, 11)) {
+            for (long i = from; i < to; i++) {
+                String name = random.nextInt(3) == 0
+                        ? vocabulary.pick(vocabulary.colors, random) + " " + vocabulary.pick(vocabulary.products, random)
+                        : vocabulary.pick(vocabulary.products, random);
+                StringBuilder description = new StringBuilder();
+                for (int s = random.nextInt(1, 6); s > 0; s--) {
+                    description.append(vocabulary.pick(vocabulary.sentences, random)).append(' ');
+                }
+                String imageUrl = "https://picsum.photos/seed/" + vocabulary.pick(vocabulary.words, random) + i + "/400/300";
+                double price = Math.round(Math.min(100_000, Math.exp(mu + priceSigma * random.nextGaussian())) * 100) / 100.0;
+                Category category = categoryValues[categories.sample(random)];
+                String city = vocabulary.pick(vocabulary.cities, random);
+                //newer ads are more common, like on a live site
+                long ageMinutes = (long) Math.min(maxAgeDays * 1440.0, -Math.log(1 - random.nextDouble()) * maxAgeDays * 1440.0 / 4);
+                LocalDateTime postDate = now.minusMinutes(ageMinutes);
+                //sellers are picked by their position among the generated users, as their ids are
+                long userId = firstUserId + sellers.sample(random);
+
+                Timestamp postTimestamp = Timestamp.valueOf(postDate);
+
+                writer.write(firstId + i, name, description.toString().trim(), imageUrl, price, category.name(), city,
+                        postTimestamp, userId, 0, postTimestamp);
+            }
+        }
+    }
+
+    private boolean hasUsers() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select 1 from users limit 1")) {
+            return resultSet.next();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not check for existing users", e);
+        }
+    }
+
+    /**
+     * Takes the ids of all rows of a table from its sequence at once, chunks then derive the ids of their rows from their position
+     *
+     * @return first of the reserved ids
+     */
+    private long reserveIds(String sequence, long count) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            long first;
+            try (ResultSet resultSet = statement.executeQuery("select nextval('" + sequence + "')")) {
+                resultSet.next();
+                first = Math.max(1, resultSet.getLong(1) - ID_BLOCK_SIZE + 1);
+            }
+            //the next nextval reserves the block right after the reserved ids
+            statement.execute("alter sequence " + sequence + " restart with " + (first + count - 1 + ID_BLOCK_SIZE));
+            return first;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not reserve ids of " + sequence, e);
+        }
+    }
+
+    private SplittableRandom chunkRandom(long table, long chunk) {
+        return new SplittableRandom(new SplittableRandom(seed ^ (table << 56) ^ (chunk * 0x9E3779B97F4A7C15L)).nextLong());
+    }
+
+    private RowWriter rowWriter(Connection connection, String table, int columns) throws SQLException {
+        if (connection.isWrapperFor(PGConnection.class)) {
+            return new CopyRowWriter(connection.unwrap(PGConnection.class).getCopyAPI(), table, batchSize);
+        }
+        return new BatchRowWriter(connection, table, columns, batchSize);
+    }
+
+    @FunctionalInterface
+    private interface ChunkTask {
+        void run(long chunk, long from, long to) throws Exception;
+    }
+
+    private interface RowWriter extends AutoCloseable {
+        void write(Object... values) throws SQLException, IOException;
+
+        @Override
+        void close() throws SQLException, IOException;
+    }
+
+    /**
+     * Buffers rows as CSV and sends them with COPY, one COPY per batch
+     */
+    private static final class CopyRowWriter implements RowWriter {
+
+        private final CopyManager copyManager;
+        private final String sql;
+        private final int batchSize;
+        private final StringBuilder buffer = new StringBuilder();
+        private int rows = 0;
+
+        CopyRowWriter(CopyManager copyManager, String table, int batchSize) {
+            this.copyManager = copyManager;
+            this.sql = "COPY " + table + " FROM STDIN WITH (FORMAT csv)";
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void write(Object... values) throws SQLException, IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                appendCsv(values[i]);
+            }
+            buffer.append('\n');
+            if (++rows == batchSize) {
+                flush();
+            }
+        }
+
+        private void appendCsv(Object value) {
+            if (value == null) {
+                return;
+            }
+            String text = value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+                buffer.append(text);
+                return;
+            }
+            buffer.append('"').append(text.replace("\"", "\"\"")).append('"');
+        }
+
+        private void flush() throws SQLException, IOException {
+            if (rows > 0) {
+                copyManager.copyIn(sql, new StringReader(buffer.toString()));
+                buffer.setLength(0);
+                rows = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException, IOException {
+            flush();
+        }
+    }
+
+    /**
+     * Inserts rows with JDBC batches, used for databases other than postgres
+     */
+    private static final class BatchRowWriter implements RowWriter {
+
+        private final PreparedStatement statement;
+        private final int batchSize;
+        private int rows = 0;
+
+        BatchRowWriter(Connection connection, String table, int columns, int batchSize) throws SQLException {
+            String placeholders = String.join(", ", Collections.nCopies(columns, "?"));
+            this.statement = connection.prepareStatement("insert into " + table + " values (" + placeholders + ")");
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void write(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                statement.setObject(i + 1, values[i]);
+            }
+            statement.addBatch();
+            if (++rows == batchSize) {
+                statement.executeBatch();
+                rows = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (rows > 0) {
+                    statement.executeBatch();
+                }
+            } finally {
+                statement.close();
+            }
+        }
+    }
+
+    /**
+     * Word pools sampled once from Faker, rows are combined from them so generation stays fast and thread safe
+     */
+    private static final class Vocabulary {
+
+        private final String[] products = new String[POOL_SIZE];
+        private final String[] colors = new String[POOL_SIZE / 10];
+        private final String[] sentences = new String[POOL_SIZE];
+        private final String[] words = new String[POOL_SIZE];
+        private final String[] cities = new String[POOL_SIZE];
+        private final String[] firstNames = new String[POOL_SIZE];
+        private final String[] lastNames = new String[POOL_SIZE];
+
+        Vocabulary(long seed) {
+            Faker faker = new Faker(Locale.ENGLISH, new Random(seed));
+            for (int i = 0; i < POOL_SIZE; i++) {
+                products[i] = faker.commerce().productName();
+                sentences[i] = faker.lorem().sentence(10);
+                words[i] = faker.lorem().word();
+                cities[i] = faker.address().city();
+                firstNames[i] = faker.name().firstName().replaceAll("[^A-Za-z]", "");
+                lastNames[i] = faker.name().lastName().replaceAll("[^A-Za-z]", "");
+            }
+            for (int i = 0; i < colors.length; i++) {
+                colors[i] = capitalize(faker.commerce().color());
+            }
+        }
+
+        String pick(String[] pool, SplittableRandom random) {
+            return pool[random.nextInt(pool.length)];
+        }
+
+        private static String capitalize(String text) {
+            return text.isEmpty() ? text : Character.toUpperCase(text.charAt(0)) + text.substring(1);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.webads.web_ads_backend.dbseeder;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Samples ranks 0..n-1 where rank k is picked with probability proportional to 1 / (k + 1)^exponent.
+ * An exponent of 0 gives a uniform distribution.
+ */
+class ZipfSampler {
+
+    private final double[] cumulative;
+
+    ZipfSampler(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Zipf distribution needs at least one element");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    int sample(RandomGenerator random) {
+        int position = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = position >= 0 ? position : -position - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
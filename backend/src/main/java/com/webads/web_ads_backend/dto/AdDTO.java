@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 @Getter
@@ -21,6 +22,8 @@ public class AdDTO {
     private String city;
     private LocalDateTime postDate;
     private AdSellerDTO seller;
+    private long version;
+    private Instant lastModified;
 
     public AdDTO(Ad ad) {
         this.id = ad.getId();
@@ -31,6 +34,8 @@ public class AdDTO {
         this.category = ad.getCategory().toString();
         this.city = ad.getCity();
         this.postDate = ad.getPostDate();
+        this.version = ad.getVersion();
+        this.lastModified = ad.getLastModified();
         if (ad.getUser() != null) {
             this.seller = new AdSellerDTO(ad.getUser());
         }
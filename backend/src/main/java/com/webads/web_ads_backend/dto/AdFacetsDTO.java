@@ -0,0 +1,36 @@
+package com.webads.web_ads_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class AdFacetsDTO {
+
+    /**
+     * Number of ads per category, counted without the category filter
+     */
+    private Map<String, Long> categories;
+
+    /**
+     * Number of ads per price range, counted without the price filters
+     */
+    private List<PriceBucket> prices;
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    public static class PriceBucket {
+        private Double from;
+        /**
+         * Exclusive upper bound, null for the last bucket
+         */
+        private Double to;
+        private long count;
+    }
+}
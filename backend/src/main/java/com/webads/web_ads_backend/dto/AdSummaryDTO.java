@@ -0,0 +1,51 @@
+package com.webads.web_ads_backend.dto;
+
+import com.webads.web_ads_backend.model.Category;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only listing row selected straight from the query, without managed entities.
+ * The description is cut to a short preview.
+ */
+public record AdSummaryDTO(
+        Long id,
+        String name,
+        String description,
+        String imageUrl,
+        Double price,
+        String category,
+        String city,
+        LocalDateTime postDate,
+        Seller seller) {
+
+    private static final String ELLIPSIS = "...";
+
+    /**
+     * Constructor used by the criteria query
+     */
+    public AdSummaryDTO(Long id, String name, String description, String imageUrl, Double price, Category category,
+                        String city, LocalDateTime postDate, Long sellerId, String sellerUsername,
+                        String sellerPhoneNumber, LocalDate sellerRegistrationDate) {
+        this(id, name, description, imageUrl, price, category.toString(), city, postDate,
+                new Seller(sellerId, sellerUsername, sellerPhoneNumber, sellerRegistrationDate));
+    }
+
+    public record Seller(Long id, String username, String phoneNumber, LocalDate registrationDate) {
+    }
+
+    /**
+     * Cuts the description to the given length, marking that it was truncated
+     *
+     * @param previewLength max number of description characters to keep
+     * @return same object if the description already fits, otherwise a copy with the preview
+     */
+    public AdSummaryDTO withDescriptionPreview(int previewLength) {
+        if (description == null || description.length() <= previewLength) {
+            return this;
+        }
+        return new AdSummaryDTO(id, name, description.substring(0, previewLength) + ELLIPSIS, imageUrl, price,
+                category, city, postDate, seller);
+    }
+}
@@ -0,0 +1,16 @@
+package com.webads.web_ads_backend.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class CreateAdsBatchDTO {
+
+    @NotEmpty(message = "At least one ad is required")
+    private List<@Valid CreateAdDTO> ads;
+}
@@ -0,0 +1,7 @@
+package com.webads.web_ads_backend.exceptions;
+
+public class ServerBusyException extends RuntimeException {
+    public ServerBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,33 @@
+package com.webads.web_ads_backend.export;
+
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+@Getter
+public enum AdExportFormat {
+    NDJSON(MediaType.valueOf("application/x-ndjson"), "ndjson"),
+    CSV(MediaType.valueOf("text/csv"), "csv");
+
+    private final MediaType mediaType;
+    private final String fileExtension;
+
+    AdExportFormat(MediaType mediaType, String fileExtension) {
+        this.mediaType = mediaType;
+        this.fileExtension = fileExtension;
+    }
+
+    /**
+     * Finds the format by its name, ignoring case
+     *
+     * @param format name of the format
+     * @return {@link AdExportFormat}
+     * @throws IllegalArgumentException if there is no such format
+     */
+    public static AdExportFormat fromParameter(String format) {
+        try {
+            return valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid export format: " + format);
+        }
+    }
+}
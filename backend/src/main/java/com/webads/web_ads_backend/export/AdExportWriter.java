@@ -0,0 +1,99 @@
+package com.webads.web_ads_backend.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Writes exported ads to an output stream, one line per ad.
+ * Output is flushed every few rows so clients receive data while the export is still running.
+ */
+public class AdExportWriter implements Consumer<AdSummaryDTO> {
+
+    private static final String CSV_HEADER = "id,name,description,imageUrl,price,category,city,postDate,sellerId,sellerUsername,sellerPhoneNumber";
+    private static final int FLUSH_EVERY_ROWS = 1000;
+
+    private final AdExportFormat format;
+
+    private final Writer writer;
+
+    private final ObjectMapper objectMapper;
+
+    private long rows = 0;
+
+    public AdExportWriter(AdExportFormat format, OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+        this.format = format;
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+        this.objectMapper = objectMapper;
+        if (format == AdExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Writes one ad
+     *
+     * @param ad ad to write
+     * @throws UncheckedIOException if writing fails, e.g. the client disconnected
+     */
+    @Override
+    public void accept(AdSummaryDTO ad) {
+        try {
+            if (format == AdExportFormat.NDJSON) {
+                writer.write(objectMapper.writeValueAsString(ad));
+            } else {
+                writeCsv(ad);
+            }
+            writer.write('\n');
+            if (++rows % FLUSH_EVERY_ROWS == 0) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes the remaining buffered rows
+     */
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    private void writeCsv(AdSummaryDTO ad) throws IOException {
+        AdSummaryDTO.Seller seller = ad.seller();
+        Object[] values = {ad.id(), ad.name(), ad.description(), ad.imageUrl(), ad.price(), ad.category(), ad.city(), ad.postDate(),
+                seller != null ? seller.id() : null,
+                seller != null ? seller.username() : null,
+                seller != null ? seller.phoneNumber() : null};
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvValue(values[i]);
+        }
+    }
+
+    private void writeCsvValue(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
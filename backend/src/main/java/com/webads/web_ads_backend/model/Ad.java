@@ -1,10 +1,14 @@
 package com.webads.web_ads_backend.model;
 
+import com.webads.web_ads_backend.cache.HibernateCacheConfig;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 @Entity
@@ -12,10 +16,12 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @NoArgsConstructor
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.ADS_REGION)
 public class Ad {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY) //autoincrement
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ad_id")
+    @SequenceGenerator(name = "ad_id", sequenceName = "ads_id_seq", allocationSize = 50) //pooled, one sequence call reserves 50 ids so inserts can be batched
     private Long id;
 
     @Column(nullable = false)
@@ -44,4 +50,20 @@ public class Ad {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    /**
+     * Incremented on every change, used in the ETag of the ad and for optimistic locking of entity updates
+     */
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    @Column(nullable = false)
+    private Instant lastModified;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = Instant.now();
+    }
+
 }
\ No newline at end of file
@@ -7,6 +7,9 @@ import lombok.Setter;
 
 import java.time.Instant;
 
+/**
+ * Refresh token of one sign in, a user has one for every device that is signed in
+ */
 @Entity
 @Table(name = "refresh_tokens")
 @Getter
@@ -15,15 +18,19 @@ import java.time.Instant;
 public class RefreshToken {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "refresh_token_id")
+    @SequenceGenerator(name = "refresh_token_id", sequenceName = "refresh_tokens_id_seq", allocationSize = 50)
     private long id;
 
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "user_id")
     private User user;
 
-    @Column(nullable = false, unique = true)
-    private String token;
+    /**
+     * SHA-256 digest of the token, the token itself is not stored
+     */
+    @Column(name = "token_hash", nullable = false, unique = true, length = 32)
+    private byte[] tokenHash;
 
     @Column(nullable = false)
     private Instant expiryDate;
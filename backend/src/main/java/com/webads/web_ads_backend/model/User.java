@@ -1,9 +1,14 @@
 package com.webads.web_ads_backend.model;
 
 import jakarta.persistence.*;
+import com.webads.web_ads_backend.cache.HibernateCacheConfig;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.time.LocalDate;
 
@@ -12,12 +17,16 @@ import java.time.LocalDate;
 @Getter
 @Setter
 @NoArgsConstructor
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.USERS_REGION)
+@NaturalIdCache(region = HibernateCacheConfig.USERS_BY_USERNAME_REGION)
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY) //autoincrement
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_id")
+    @SequenceGenerator(name = "user_id", sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
 
+    @NaturalId
     @Column(unique = true, nullable = false)
     private String username;
 
@@ -0,0 +1,71 @@
+package com.webads.web_ads_backend.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+
+/**
+ * {@link RateLimitStore} in the rate_limit_buckets table of the primary database, see the rate_limit_* functions of
+ * the V6 migration. Every call is a single statement outside of a transaction, the row of a bucket is locked only
+ * while it is updated. Times are taken from the database clock, the clocks of the instances do not need to agree.
+ */
+@Component
+@ConditionalOnProperty(name = "rate-limit.shared.enabled", havingValue = "true")
+public class JdbcRateLimitStore implements RateLimitStore {
+
+    private final Logger logger = LoggerFactory.getLogger(JdbcRateLimitStore.class);
+
+    @Value("${rate-limit.shared.purge-batch-size:10000}")
+    private int purgeBatchSize;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JdbcRateLimitStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public long take(RateLimitPolicy policy, long key, long tokens, long intervalMicros, long burstMicros) {
+        Long taken = jdbcTemplate.queryForObject("select rate_limit_take(?, ?, ?, ?, ?)", Long.class,
+                policy.name(), key, tokens, intervalMicros, burstMicros);
+        return taken == null ? 0 : taken;
+    }
+
+    @Override
+    public void release(RateLimitPolicy policy, long[] keys, long[] tokens, long intervalMicros) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("select rate_limit_release(?, ?, ?, ?)");
+            statement.setString(1, policy.name());
+            statement.setArray(2, connection.createArrayOf("bigint", Arrays.stream(keys).boxed().toArray()));
+            statement.setArray(3, connection.createArrayOf("bigint", Arrays.stream(tokens).boxed().toArray()));
+            statement.setLong(4, intervalMicros);
+            return statement;
+        }, resultSet -> null);
+    }
+
+    /**
+     * Deletes the buckets that are full again, a missing bucket is a full one
+     *
+     * @return number of deleted buckets
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.shared.purge-interval:1m}", initialDelayString = "${rate-limit.shared.purge-interval:1m}")
+    public int purgeFull() {
+        int total = 0;
+        Integer deleted;
+        do {
+            deleted = jdbcTemplate.queryForObject("select rate_limit_purge(?)", Integer.class, purgeBatchSize);
+            total += deleted == null ? 0 : deleted;
+        } while (deleted != null && deleted == purgeBatchSize);
+        logger.debug("deleted {} full rate limit buckets", total);
+        return total;
+    }
+}
@@ -0,0 +1,146 @@
+package com.webads.web_ads_backend.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket per key in a fixed table of longs, the memory use does not depend on the number of clients.
+ * <p>
+ * A bucket is kept as the time at which it is full again (GCRA): every request moves the time one refill interval
+ * ahead, a request is rejected if that time would be more than the capacity of intervals away.
+ * The time and a 16-bit tag of the key's hash share one long, updated by compare-and-set without locks.
+ * A key hashes to a group of 4 slots. Its slot is taken over by another key only once its bucket is full again,
+ * a full bucket and a forgotten one allow the same requests, so a key is tracked for at most one period after
+ * its last request and only clients that are limited right now take slots.
+ * When all 4 slots of a group hold buckets that are not full, a new key shares the slot that refills first with
+ * its current key. Both keys then take tokens from the same bucket, the limit gets stricter for them but never looser.
+ * Shared slots are counted, a growing count means the table is too small for the traffic.
+ */
+public class LocalRateLimiter implements RateLimiter {
+
+    private static final int SLOTS_PER_GROUP = 4;
+
+    //microseconds since start, enough for 8 years
+    private static final int TIME_BITS = 48;
+
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+    private final AtomicLongArray slots;
+
+    private final int groupMask;
+
+    private final long intervalMicros;
+
+    private final long burstMicros;
+
+    private final LongSupplier clock;
+
+    private final LongAdder sharedSlots = new LongAdder();
+
+    /**
+     * @param capacity requests allowed within a period, also the burst allowed after a quiet period
+     * @param period period in which the bucket is refilled completely
+     * @param maxKeys number of keys that can be limited at the same time, rounded up to a power of two
+     */
+    public LocalRateLimiter(long capacity, Duration period, int maxKeys) {
+        this(capacity, period, maxKeys, startedClock());
+    }
+
+    /**
+     * @param clock microseconds since an arbitrary start, never going back
+     */
+    LocalRateLimiter(long capacity, Duration period, int maxKeys, LongSupplier clock) {
+        long periodMicros = TimeUnit.NANOSECONDS.toMicros(period.toNanos());
+        if (capacity < 1 || periodMicros / capacity < 1) {
+            throw new IllegalArgumentException("Rate limit of " + capacity + " per " + period + " is out of range");
+        }
+        int needed = Math.max((maxKeys + SLOTS_PER_GROUP - 1) / SLOTS_PER_GROUP, 1);
+        int groups = needed == 1 ? 1 : Integer.highestOneBit(needed - 1) << 1;
+        this.slots = new AtomicLongArray(groups * SLOTS_PER_GROUP);
+        this.groupMask = groups - 1;
+        this.intervalMicros = periodMicros / capacity;
+        this.burstMicros = intervalMicros * capacity;
+        this.clock = clock;
+    }
+
+    @Override
+    public long tryAcquire(long key) {
+        long now = clock.getAsLong();
+        long tag = tag(key);
+        int group = ((int) key & groupMask) * SLOTS_PER_GROUP;
+        while (true) {
+            int index = -1;
+            long slot = 0;
+            boolean shared = false;
+            int fullest = -1;
+            long fullestSlot = 0;
+            for (int i = group; i < group + SLOTS_PER_GROUP; i++) {
+                long current = slots.get(i);
+                if (current != 0 && (current >>> TIME_BITS) == tag) {
+                    index = i;
+                    slot = current;
+                    break;
+                }
+                if ((current & TIME_MASK) <= now) {
+                    if (index < 0) {
+                        //a full bucket of another key, same as an empty slot
+                        index = i;
+                        slot = current;
+                    }
+                } else if (fullest < 0 || (current & TIME_MASK) < (fullestSlot & TIME_MASK)) {
+                    fullest = i;
+                    fullestSlot = current;
+                }
+            }
+            if (index < 0) {
+                index = fullest;
+                slot = fullestSlot;
+                shared = true;
+            }
+            long next = Math.max(slot & TIME_MASK, now) + intervalMicros;
+            if (next - now > burstMicros) {
+                if (shared) {
+                    sharedSlots.increment();
+                }
+                return -(next - now - burstMicros);
+            }
+            //a shared slot keeps the tag of the key that took it first
+            long slotTag = shared ? slot >>> TIME_BITS : tag;
+            if (slots.compareAndSet(index, slot, slotTag << TIME_BITS | next)) {
+                if (shared) {
+                    sharedSlots.increment();
+                }
+                return (burstMicros - (next - now)) / intervalMicros;
+            }
+        }
+    }
+
+    /**
+     * @return number of slots, the most keys that can be limited at the same time
+     */
+    public int maxKeys() {
+        return slots.length();
+    }
+
+    /**
+     * @return number of requests checked against the bucket of another key because no slot was free
+     */
+    public long sharedSlotCount() {
+        return sharedSlots.sum();
+    }
+
+    private static long tag(long key) {
+        //0 marks an empty slot
+        long tag = key >>> TIME_BITS;
+        return tag == 0 ? 1 : tag;
+    }
+
+    static LongSupplier startedClock() {
+        long start = System.nanoTime();
+        //starts at 1, a slot time of 0 is always in the past
+        return () -> (System.nanoTime() - start) / 1000 + 1;
+    }
+}
@@ -0,0 +1,80 @@
+package com.webads.web_ads_backend.ratelimit;
+
+import com.webads.web_ads_backend.security.AuthenticatedUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Limits requests per client and {@link RateLimitPolicy}.
+ * Runs after the JWT filter, signed in users are limited by user id, whatever address they use,
+ * everyone else by IP address. Sign in, registration and token refresh are always limited by IP address.
+ * Rejected requests get 429 with the seconds until the next allowed request in X-Rate-Limit-Retry-After-Seconds.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String TOO_MANY_REQUESTS_BODY = "{ \"message\": \"Too many requests!\" }";
+
+    private final RateLimiters rateLimiters;
+
+    private final Map<RateLimitPolicy, Counter> rejected = new EnumMap<>(RateLimitPolicy.class);
+
+    @Autowired
+    public RateLimitFilter(RateLimiters rateLimiters, MeterRegistry meterRegistry) {
+        this.rateLimiters = rateLimiters;
+        for (RateLimitPolicy policy : RateLimitPolicy.values()) {
+            rejected.put(policy, Counter.builder("rate.limit.rejected")
+                    .description("Requests rejected by the rate limiter")
+                    .tag("policy", policy.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        RateLimitPolicy policy = RateLimitPolicy.of(request);
+        return policy == null || rateLimiters.get(policy) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RateLimitPolicy policy = RateLimitPolicy.of(request);
+        long result = rateLimiters.get(policy).tryAcquire(key(policy, request));
+        if (result >= 0) {
+            response.setHeader("X-Rate-Limit-Remaining", Long.toString(result));
+            chain.doFilter(request, response);
+            return;
+        }
+        rejected.get(policy).increment();
+        long retryAfterSeconds = (-result + 999_999) / 1_000_000;
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("X-Rate-Limit-Retry-After-Seconds", Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(TOO_MANY_REQUESTS_BODY);
+    }
+
+    private static long key(RateLimitPolicy policy, HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (policy != RateLimitPolicy.AUTH && authentication != null
+                && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return RateLimiter.hash(user.getId());
+        }
+        return RateLimiter.hash(request.getRemoteAddr());
+    }
+}
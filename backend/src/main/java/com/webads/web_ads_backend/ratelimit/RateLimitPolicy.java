@@ -0,0 +1,41 @@
+package com.webads.web_ads_backend.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+
+/**
+ * Routes limited together, every policy has its own rate and its own buckets
+ */
+public enum RateLimitPolicy {
+
+    /**
+     * Sign in, registration and token refresh, counted per IP address
+     */
+    AUTH,
+
+    /**
+     * GET requests of the api
+     */
+    READ,
+
+    /**
+     * All other requests of the api
+     */
+    WRITE;
+
+    /**
+     * @param request incoming request
+     * @return policy of the request, null if the request is not limited
+     */
+    public static RateLimitPolicy of(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/api/auth/")) {
+            return AUTH;
+        }
+        if (!path.startsWith("/api/")) {
+            return null;
+        }
+        String method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) ? READ : WRITE;
+    }
+}
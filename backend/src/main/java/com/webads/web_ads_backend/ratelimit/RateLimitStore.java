@@ -0,0 +1,31 @@
+package com.webads.web_ads_backend.ratelimit;
+
+/**
+ * Token buckets shared by all instances of the backend.
+ * A bucket is kept like in {@link LocalRateLimiter}, as the time at which it is full again, on the clock of the store.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Takes up to the given number of tokens from the bucket of a key
+     *
+     * @param policy policy of the bucket
+     * @param key hash of the client
+     * @param tokens most tokens to take
+     * @param intervalMicros time in which one token is refilled
+     * @param burstMicros time in which the whole bucket is refilled
+     * @return tokens taken, at least 1, otherwise a negative number whose absolute value
+     * is the number of microseconds until a token is available
+     */
+    long take(RateLimitPolicy policy, long key, long tokens, long intervalMicros, long burstMicros);
+
+    /**
+     * Puts tokens that were taken but not used back into their buckets
+     *
+     * @param policy policy of the buckets
+     * @param keys hashes of the clients, each at most once
+     * @param tokens unused tokens per key
+     * @param intervalMicros time in which one token is refilled
+     */
+    void release(RateLimitPolicy policy, long[] keys, long[] tokens, long intervalMicros);
+}
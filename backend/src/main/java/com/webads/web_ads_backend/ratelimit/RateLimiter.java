@@ -0,0 +1,42 @@
+package com.webads.web_ads_backend.ratelimit;
+
+/**
+ * Token buckets of the clients of one {@link RateLimitPolicy}
+ */
+public interface RateLimiter {
+
+    /**
+     * Takes a token from the bucket of a key
+     *
+     * @param key hash of the client, see {@link #hash(String)} and {@link #hash(long)}
+     * @return tokens left if the request is allowed, otherwise a negative number whose absolute value
+     * is the number of microseconds until a token is available
+     */
+    long tryAcquire(long key);
+
+    /**
+     * @param key client key, e.g. an IP address
+     * @return 64-bit hash of the key
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * @param key numeric client key, e.g. a user id
+     * @return 64-bit hash of the key
+     */
+    static long hash(long key) {
+        return mix(key ^ 0x9e3779b97f4a7c15L);
+    }
+
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,100 @@
+package com.webads.web_ads_backend.ratelimit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link RateLimiter} of every {@link RateLimitPolicy}.
+ * The limiters keep their buckets in this instance, or share them with the other instances when a
+ * {@link RateLimitStore} is configured with rate-limit.shared.enabled.
+ */
+@Component
+public class RateLimiters implements DisposableBean {
+
+    private final Map<RateLimitPolicy, RateLimiter> limiters = new EnumMap<>(RateLimitPolicy.class);
+
+    @Autowired
+    public RateLimiters(MeterRegistry meterRegistry, Optional<RateLimitStore> store,
+                        @Value("${rate-limit.enabled:true}") boolean enabled,
+                        @Value("${rate-limit.max-keys:1048576}") int maxKeys,
+                        @Value("${rate-limit.shared.lease-fraction:0.1}") double leaseFraction,
+                        @Value("${rate-limit.shared.min-lease:2}") long minLease,
+                        @Value("${rate-limit.shared.lease-time:1s}") Duration leaseTime,
+                        @Value("${rate-limit.auth.capacity}") long authCapacity,
+                        @Value("${rate-limit.auth.period}") Duration authPeriod,
+                        @Value("${rate-limit.read.capacity}") long readCapacity,
+                        @Value("${rate-limit.read.period}") Duration readPeriod,
+                        @Value("${rate-limit.write.capacity}") long writeCapacity,
+                        @Value("${rate-limit.write.period}") Duration writePeriod) {
+        if (!enabled) {
+            return;
+        }
+        Map<RateLimitPolicy, Long> capacities = Map.of(
+                RateLimitPolicy.AUTH, authCapacity, RateLimitPolicy.READ, readCapacity, RateLimitPolicy.WRITE, writeCapacity);
+        Map<RateLimitPolicy, Duration> periods = Map.of(
+                RateLimitPolicy.AUTH, authPeriod, RateLimitPolicy.READ, readPeriod, RateLimitPolicy.WRITE, writePeriod);
+        for (RateLimitPolicy policy : RateLimitPolicy.values()) {
+            long capacity = capacities.get(policy);
+            Duration period = periods.get(policy);
+            String tag = policy.name().toLowerCase();
+            if (store.isPresent()) {
+                SharedRateLimiter limiter = new SharedRateLimiter(policy, store.get(), capacity, period, maxKeys, leaseFraction, minLease, leaseTime);
+                FunctionCounter.builder("rate.limit.store.calls", limiter, SharedRateLimiter::storeCallCount)
+                        .description("Calls to the shared rate limit store")
+                        .tag("policy", tag)
+                        .register(meterRegistry);
+                FunctionCounter.builder("rate.limit.store.errors", limiter, SharedRateLimiter::storeErrorCount)
+                        .description("Failed calls to the shared rate limit store")
+                        .tag("policy", tag)
+                        .register(meterRegistry);
+                limiters.put(policy, limiter);
+            } else {
+                LocalRateLimiter limiter = new LocalRateLimiter(capacity, period, maxKeys);
+                FunctionCounter.builder("rate.limit.shared", limiter, LocalRateLimiter::sharedSlotCount)
+                        .description("Requests checked against the bucket of another client because the rate limiter table was full")
+                        .tag("policy", tag)
+                        .register(meterRegistry);
+                limiters.put(policy, limiter);
+            }
+        }
+    }
+
+    /**
+     * @param policy policy of a request
+     * @return limiter of the policy, null if rate limiting is disabled
+     */
+    public RateLimiter get(RateLimitPolicy policy) {
+        return limiters.get(policy);
+    }
+
+    /**
+     * Puts the unused tokens of ended leases back into the shared store
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.shared.flush-interval:1s}")
+    public void flush() {
+        limiters.values().forEach(limiter -> {
+            if (limiter instanceof SharedRateLimiter shared) {
+                shared.flush();
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        limiters.values().forEach(limiter -> {
+            if (limiter instanceof SharedRateLimiter shared) {
+                shared.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,233 @@
+package com.webads.web_ads_backend.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter whose buckets are shared by all instances of the backend through a {@link RateLimitStore}.
+ * <p>
+ * An instance does not ask the store for every request. It takes a lease of several tokens of a client's bucket,
+ * at least the minimum lease even of small capacities, and serves the client's next requests from it. A lease is kept for the lease time at most, unused tokens are
+ * put back into the store by {@link #flush()}, so idle leases do not lower the limit. A client that is out of tokens
+ * is rejected without asking the store again until its next token is due, the tokens left of a request are those of the lease.
+ * The leases make the limit looser by at most one lease per instance, which is a fraction of the capacity.
+ * The store is called without holding the lease, concurrent requests of a client that find it empty take leases
+ * of their own, whose tokens are added to it.
+ * <p>
+ * While the store can not be reached, requests are limited by a {@link LocalRateLimiter} of this instance only.
+ */
+public class SharedRateLimiter implements RateLimiter {
+
+    private static final Duration STORE_RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final Logger logger = LoggerFactory.getLogger(SharedRateLimiter.class);
+
+    private final RateLimitPolicy policy;
+
+    private final RateLimitStore store;
+
+    private final LocalRateLimiter fallback;
+
+    private final long leaseSize;
+
+    private final long intervalMicros;
+
+    private final long burstMicros;
+
+    private final LongSupplier clock;
+
+    private final Cache<Long, Lease> leases;
+
+    private final Queue<Lease> endedLeases = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder storeCalls = new LongAdder();
+
+    private final LongAdder storeErrors = new LongAdder();
+
+    private volatile long storeRetryAt;
+
+    /**
+     * @param policy policy of the buckets
+     * @param store store of the shared buckets
+     * @param capacity requests allowed within a period on all instances together
+     * @param period period in which a bucket is refilled completely
+     * @param maxKeys number of clients with a lease at the same time, also the size of the fallback limiter
+     * @param leaseFraction part of the capacity taken from the store at once
+     * @param minLease tokens taken from the store at once at least, the whole capacity if it is smaller
+     * @param leaseTime time after which unused tokens of a lease are put back
+     */
+    public SharedRateLimiter(RateLimitPolicy policy, RateLimitStore store, long capacity, Duration period, int maxKeys,
+                             double leaseFraction, long minLease, Duration leaseTime) {
+        this(policy, store, capacity, period, maxKeys, leaseFraction, minLease, leaseTime, LocalRateLimiter.startedClock());
+    }
+
+    /**
+     * @param clock microseconds since an arbitrary start, never going back
+     */
+    SharedRateLimiter(RateLimitPolicy policy, RateLimitStore store, long capacity, Duration period, int maxKeys,
+                      double leaseFraction, long minLease, Duration leaseTime, LongSupplier clock) {
+        this.policy = policy;
+        this.store = store;
+        this.fallback = new LocalRateLimiter(capacity, period, maxKeys, clock);
+        this.leaseSize = Math.min(capacity, Math.max(Math.max(1, minLease), (long) (capacity * leaseFraction)));
+        this.intervalMicros = TimeUnit.NANOSECONDS.toMicros(period.toNanos()) / capacity;
+        this.burstMicros = intervalMicros * capacity;
+        this.clock = clock;
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(leaseTime)
+                .ticker(() -> TimeUnit.MICROSECONDS.toNanos(clock.getAsLong()))
+                //the listener only marks and queues the lease, it never waits for the lock of a lease
+                .executor(Runnable::run)
+                .removalListener((Long key, Lease lease, RemovalCause cause) -> {
+                    lease.ended = true;
+                    endedLeases.add(lease);
+                })
+                .build();
+    }
+
+    @Override
+    public long tryAcquire(long key) {
+        long now = clock.getAsLong();
+        Lease lease;
+        while (true) {
+            lease = leases.get(key, Lease::new);
+            lease.lock.lock();
+            try {
+                if (!lease.ended) {
+                    if (lease.tokens > 0) {
+                        return --lease.tokens;
+                    }
+                    if (now < lease.nextTokenAt) {
+                        return -(lease.nextTokenAt - now);
+                    }
+                    break;
+                }
+            } finally {
+                lease.lock.unlock();
+            }
+        }
+
+        if (now < storeRetryAt) {
+            return fallback.tryAcquire(key);
+        }
+        long taken;
+        try {
+            storeCalls.increment();
+            taken = store.take(policy, key, leaseSize, intervalMicros, burstMicros);
+        } catch (DataAccessException e) {
+            storeErrors.increment();
+            storeRetryAt = now + TimeUnit.NANOSECONDS.toMicros(STORE_RETRY_DELAY.toNanos());
+            logger.warn("rate limit store is not available, {} requests are limited per instance for {}",
+                    policy, STORE_RETRY_DELAY, e);
+            return fallback.tryAcquire(key);
+        }
+
+        lease.lock.lock();
+        try {
+            if (taken < 0) {
+                lease.nextTokenAt = Math.max(lease.nextTokenAt, now - taken);
+                return taken;
+            }
+            lease.tokens += taken - 1;
+            if (lease.ended) {
+                //the lease ended while the store was called, the next flush puts the tokens back
+                endedLeases.add(lease);
+            }
+            return lease.tokens;
+        } finally {
+            lease.lock.unlock();
+        }
+    }
+
+    /**
+     * Puts the unused tokens of ended leases back into the store, one call for all of them
+     */
+    public void flush() {
+        leases.cleanUp();
+        Map<Long, Long> unused = new HashMap<>();
+        for (Lease lease = endedLeases.poll(); lease != null; lease = endedLeases.poll()) {
+            lease.lock.lock();
+            try {
+                if (lease.tokens > 0) {
+                    unused.merge(lease.key, lease.tokens, Long::sum);
+                    lease.tokens = 0;
+                }
+            } finally {
+                lease.lock.unlock();
+            }
+        }
+        if (unused.isEmpty()) {
+            return;
+        }
+        long[] keys = new long[unused.size()];
+        long[] tokens = new long[unused.size()];
+        int i = 0;
+        for (Map.Entry<Long, Long> entry : unused.entrySet()) {
+            keys[i] = entry.getKey();
+            tokens[i++] = entry.getValue();
+        }
+        try {
+            storeCalls.increment();
+            store.release(policy, keys, tokens, intervalMicros);
+        } catch (DataAccessException e) {
+            //the tokens are lost, their buckets are refilled in time anyway
+            storeErrors.increment();
+            logger.warn("could not put {} unused {} tokens back", Arrays.stream(tokens).sum(), policy, e);
+        }
+    }
+
+    /**
+     * Ends all leases and puts their unused tokens back, e.g. on shutdown
+     */
+    public void close() {
+        leases.invalidateAll();
+        flush();
+    }
+
+    /**
+     * @return number of calls to the store
+     */
+    public long storeCallCount() {
+        return storeCalls.sum();
+    }
+
+    /**
+     * @return number of failed calls to the store
+     */
+    public long storeErrorCount() {
+        return storeErrors.sum();
+    }
+
+    private static final class Lease {
+
+        private final long key;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private long tokens;
+
+        private long nextTokenAt;
+
+        private volatile boolean ended;
+
+        private Lease(long key) {
+            this.key = key;
+        }
+    }
+}
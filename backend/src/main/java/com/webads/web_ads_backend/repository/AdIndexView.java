@@ -0,0 +1,16 @@
+package com.webads.web_ads_backend.repository;
+
+import com.webads.web_ads_backend.model.Category;
+
+/**
+ * Minimal ad columns needed to build the in-memory search indexes
+ */
+public interface AdIndexView {
+    Long getId();
+
+    String getName();
+
+    Category getCategory();
+
+    Double getPrice();
+}
@@ -1,11 +1,47 @@
 package com.webads.web_ads_backend.repository;
 
 import com.webads.web_ads_backend.model.Ad;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface AdRepository extends JpaRepository<Ad, Long>, JpaSpecificationExecutor<Ad> {
+public interface AdRepository extends JpaRepository<Ad, Long>, JpaSpecificationExecutor<Ad>, AdRepositoryCustom {
+
+    /**
+     * Sellers are fetched in the same select, the count query is left without the join
+     */
+    @Override
+    @EntityGraph(attributePaths = "user")
+    Page<Ad> findAll(Specification<Ad> spec, Pageable pageable);
+
+    /**
+     * Implemented by {@link AdRepositoryCustom#findById(Long)}, so that the seller is loaded also for cached ads
+     */
+    @Override
+    Optional<Ad> findById(Long id);
+
+    /**
+     * Finds an ad only if it belongs to the user and locks its row until the end of the transaction
+     * Changes are made to the returned entity, so only this ad is evicted from the second-level cache
+     *
+     * @return {@link Optional} with the {@link Ad}, empty if the ad does not exist or belongs to another user
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Ad a where a.id = :id and a.user.id = :userId")
+    Optional<Ad> findOwnedForUpdate(@Param("id") Long id, @Param("userId") Long userId);
 
+    @Query("select a.id as id, a.name as name, a.category as category, a.price as price from Ad a where a.id > :afterId order by a.id")
+    List<AdIndexView> findIndexViewsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
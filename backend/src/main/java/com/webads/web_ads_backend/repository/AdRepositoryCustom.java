@@ -0,0 +1,78 @@
+package com.webads.web_ads_backend.repository;
+
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
+import com.webads.web_ads_backend.model.Ad;
+import com.webads.web_ads_backend.model.Category;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface AdRepositoryCustom {
+
+    /**
+     * Finds an ad with its seller
+     * The seller is joined when the ad is read from the database and taken from the second-level cache
+     * when the ad is cached there, in both cases it is initialized when the method returns
+     *
+     * @param id ID of the ad
+     * @return {@link Optional} with the {@link Ad}, empty if there is no ad with the ID
+     */
+    Optional<Ad> findById(Long id);
+
+    /**
+     * Finds a page of listing rows, the count query is skipped when the page size is not reached
+     *
+     * @param spec filters
+     * @param pageable pagination and sorting information
+     * @param descriptionPreviewLength max number of description characters to select
+     * @return A {@link Page} of {@link AdSummaryDTO} objects
+     */
+    Page<AdSummaryDTO> findSummaries(Specification<Ad> spec, Pageable pageable, int descriptionPreviewLength);
+
+    /**
+     * Finds up to limit listing rows without counting
+     *
+     * @param spec filters
+     * @param sort sorting information
+     * @param limit max number of rows
+     * @param descriptionPreviewLength max number of description characters to select
+     * @return {@link List} of {@link AdSummaryDTO} objects
+     */
+    List<AdSummaryDTO> findSummaries(Specification<Ad> spec, Sort sort, int limit, int descriptionPreviewLength);
+
+    /**
+     * Streams all matching listing rows with full descriptions, reading them from a database cursor
+     * Must be called and consumed inside a transaction, the stream has to be closed
+     *
+     * @param spec filters
+     * @param sort sorting information
+     * @param fetchSize number of rows fetched from the database at once
+     * @return {@link Stream} of {@link AdSummaryDTO} objects
+     */
+    Stream<AdSummaryDTO> streamSummaries(Specification<Ad> spec, Sort sort, int fetchSize);
+
+    /**
+     * Counts matching ads per category, categories without ads are left out
+     * Results are kept in the query cache until an ad changes
+     *
+     * @param spec filters
+     * @return number of ads by category
+     */
+    Map<Category, Long> countByCategory(Specification<Ad> spec);
+
+    /**
+     * Counts matching ads per price bucket in one query
+     * Results are kept in the query cache until an ad changes
+     *
+     * @param spec filters
+     * @param priceBuckets ascending lower bounds of the buckets, the last bucket is open
+     * @return one count per bucket
+     */
+    long[] countByPriceBucket(Specification<Ad> spec, double[] priceBuckets);
+}
@@ -0,0 +1,186 @@
+package com.webads.web_ads_backend.repository;
+
+import com.webads.web_ads_backend.cache.HibernateCacheConfig;
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
+import com.webads.web_ads_backend.model.Ad;
+import com.webads.web_ads_backend.model.Category;
+import com.webads.web_ads_backend.model.User;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.Hibernate;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public class AdRepositoryImpl implements AdRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Ad> findById(Long id) {
+        EntityGraph<Ad> withSeller = entityManager.createEntityGraph(Ad.class);
+        withSeller.addAttributeNodes("user");
+        Ad ad = entityManager.find(Ad.class, id, Map.of(AvailableHints.HINT_SPEC_FETCH_GRAPH, withSeller));
+        //ads read from the second-level cache ignore the graph and only hold a proxy of the seller
+        if (ad != null) {
+            Hibernate.initialize(ad.getUser());
+        }
+        return Optional.ofNullable(ad);
+    }
+
+    @Override
+    public Page<AdSummaryDTO> findSummaries(Specification<Ad> spec, Pageable pageable, int descriptionPreviewLength) {
+        TypedQuery<AdSummaryDTO> query = summaryQuery(spec, pageable.getSort(), descriptionPreviewLength);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<AdSummaryDTO> content = withPreviews(query.getResultList(), descriptionPreviewLength);
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(spec));
+    }
+
+    @Override
+    public List<AdSummaryDTO> findSummaries(Specification<Ad> spec, Sort sort, int limit, int descriptionPreviewLength) {
+        List<AdSummaryDTO> content = summaryQuery(spec, sort, descriptionPreviewLength)
+                .setMaxResults(limit)
+                .getResultList();
+        return withPreviews(content, descriptionPreviewLength);
+    }
+
+    @Override
+    public Stream<AdSummaryDTO> streamSummaries(Specification<Ad> spec, Sort sort, int fetchSize) {
+        return summaryQuery(spec, sort, null)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(AvailableHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    @Override
+    public Map<Category, Long> countByCategory(Specification<Ad> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Ad> root = query.from(Ad.class);
+
+        query.multiselect(root.get("category"), cb.count(root));
+        query.where(spec.toPredicate(root, query, cb));
+        query.groupBy(root.get("category"));
+
+        Map<Category, Long> counts = new EnumMap<>(Category.class);
+        for (Tuple row : cached(entityManager.createQuery(query)).getResultList()) {
+            counts.put(row.get(0, Category.class), row.get(1, Long.class));
+        }
+        return counts;
+    }
+
+    @Override
+    public long[] countByPriceBucket(Specification<Ad> spec, double[] priceBuckets) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Ad> root = query.from(Ad.class);
+        Path<Double> price = root.get("price");
+        Path<Long> id = root.get("id");
+
+        //count(case when <price in bucket> then id end) per bucket, null ids of other buckets are not counted
+        List<Selection<?>> counts = new ArrayList<>(priceBuckets.length);
+        for (int i = 0; i < priceBuckets.length; i++) {
+            Predicate inBucket = cb.greaterThanOrEqualTo(price, priceBuckets[i]);
+            if (i + 1 < priceBuckets.length) {
+                inBucket = cb.and(inBucket, cb.lessThan(price, priceBuckets[i + 1]));
+            }
+            counts.add(cb.count(cb.<Long>selectCase().when(inBucket, id).otherwise(cb.nullLiteral(Long.class))));
+        }
+        query.multiselect(counts);
+        query.where(spec.toPredicate(root, query, cb));
+
+        Tuple row = cached(entityManager.createQuery(query)).getSingleResult();
+        long[] result = new long[priceBuckets.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = row.get(i, Long.class);
+        }
+        return result;
+    }
+
+    /**
+     * Stores the results of an aggregate query in the query cache
+     * Cached results are discarded as soon as any ad is changed
+     */
+    private static <T> TypedQuery<T> cached(TypedQuery<T> query) {
+        return query
+                .setHint(AvailableHints.HINT_CACHEABLE, true)
+                .setHint(AvailableHints.HINT_CACHE_REGION, HibernateCacheConfig.AD_QUERIES_REGION);
+    }
+
+    /**
+     * @param descriptionPreviewLength max number of description characters to select, null selects the full description
+     */
+    private TypedQuery<AdSummaryDTO> summaryQuery(Specification<Ad> spec, Sort sort, Integer descriptionPreviewLength) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<AdSummaryDTO> query = cb.createQuery(AdSummaryDTO.class);
+        Root<Ad> root = query.from(Ad.class);
+        Join<Ad, User> seller = root.join("user");
+
+        query.select(cb.construct(AdSummaryDTO.class,
+                root.get("id"),
+                root.get("name"),
+                descriptionPreviewLength == null
+                        ? root.get("description")
+                        : cb.substring(root.get("description"), 1, descriptionPreviewLength + 1),
+                root.get("imageUrl"),
+                root.get("price"),
+                root.get("category"),
+                root.get("city"),
+                root.get("postDate"),
+                seller.get("id"),
+                seller.get("username"),
+                seller.get("phoneNumber"),
+                seller.get("registrationDate")));
+        query.where(spec.toPredicate(root, query, cb));
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query);
+    }
+
+    /**
+     * One extra description character is selected so that truncated previews can be marked
+     */
+    private List<AdSummaryDTO> withPreviews(List<AdSummaryDTO> content, int descriptionPreviewLength) {
+        return content.stream()
+                .map(summary -> summary.withDescriptionPreview(descriptionPreviewLength))
+                .toList();
+    }
+
+    private long count(Specification<Ad> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Ad> root = query.from(Ad.class);
+
+        query.select(cb.count(root));
+        query.where(spec.toPredicate(root, query, cb));
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
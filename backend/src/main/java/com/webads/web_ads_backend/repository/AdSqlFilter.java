@@ -0,0 +1,113 @@
+package com.webads.web_ads_backend.repository;
+
+import com.webads.web_ads_backend.model.Category;
+import com.webads.web_ads_backend.search.AdNameIndex;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ad filters as a SQL where clause with named parameters, for queries that do not go through JPA.
+ * Matches the same ads as the {@link com.webads.web_ads_backend.specification.AdSpecificationBuilder} with the same filters,
+ * the ads table is expected under the alias {@code a}.
+ */
+public class AdSqlFilter {
+
+    private final List<String> conditions = new ArrayList<>();
+
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+    private boolean matchesNothing = false;
+
+    public AdSqlFilter withCategory(String category) {
+        if (category != null && !category.isEmpty()) {
+            try {
+                parameters.put("category", Category.valueOf(category.toUpperCase()).name());
+                conditions.add("a.category = :category");
+            } catch (IllegalArgumentException e) {
+                matchesNothing = true;
+            }
+        }
+        return this;
+    }
+
+    public AdSqlFilter withName(String name) {
+        if (name != null && !name.isEmpty()) {
+            parameters.put("name", "%" + name.toLowerCase(Locale.ROOT) + "%");
+            conditions.add("lower(a.name) like :name");
+        }
+        return this;
+    }
+
+    public AdSqlFilter withMinPrice(Double minPrice) {
+        if (minPrice != null) {
+            parameters.put("minPrice", minPrice);
+            conditions.add("a.price >= :minPrice");
+        }
+        return this;
+    }
+
+    public AdSqlFilter withMaxPrice(Double maxPrice) {
+        if (maxPrice != null) {
+            parameters.put("maxPrice", maxPrice);
+            conditions.add("a.price <= :maxPrice");
+        }
+        return this;
+    }
+
+    public AdSqlFilter withUserId(Long userId) {
+        if (userId != null) {
+            parameters.put("userId", userId);
+            conditions.add("a.user_id = :userId");
+        }
+        return this;
+    }
+
+    public AdSqlFilter withCandidates(AdNameIndex.Candidates candidates) {
+        if (candidates != null) {
+            parameters.put("indexedUpTo", candidates.indexedUpTo());
+            if (candidates.ids().isEmpty()) {
+                conditions.add("a.id > :indexedUpTo");
+            } else {
+                parameters.put("ids", candidates.ids().toArray(new Long[0]));
+                conditions.add("(a.id = any(:ids) or a.id > :indexedUpTo)");
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return true if a filter can not match any ad, so the query does not have to run
+     */
+    public boolean matchesNothing() {
+        return matchesNothing;
+    }
+
+    /**
+     * @return where clause including the where keyword, empty if there are no filters
+     */
+    public String where() {
+        return conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+    }
+
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Binds the filter parameters to a statement created from a query with {@link #where()}
+     *
+     * @param spec statement to bind to
+     * @return statement with the parameters bound
+     */
+    public DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec) {
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec;
+    }
+}
@@ -0,0 +1,126 @@
+package com.webads.web_ads_backend.repository;
+
+import com.webads.web_ads_backend.dto.AdDTO;
+import com.webads.web_ads_backend.dto.AdSellerDTO;
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking reads of ads over R2DBC, used by the reactive read API.
+ * Rows are mapped straight to the same DTOs the JPA queries return.
+ */
+@Repository
+@ConditionalOnProperty(name = "ads.reactive.enabled", havingValue = "true")
+public class ReactiveAdRepository {
+
+    private static final String SUMMARY_COLUMNS = "select a.id, a.name, substring(a.description from 1 for :descriptionLength) as description, " +
+            "a.image_url, a.price, a.category, a.city, a.post_date, " +
+            "u.id as seller_id, u.username, u.phone_number, u.registration_date " +
+            "from ads a join users u on u.id = a.user_id";
+
+    private static final String DETAIL_QUERY = "select a.id, a.name, a.description, a.image_url, a.price, a.category, a.city, a.post_date, " +
+            "a.version, a.last_modified, u.id as seller_id, u.username, u.phone_number, u.registration_date " +
+            "from ads a join users u on u.id = a.user_id where a.id = :id";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveAdRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Finds listing rows ordered by post date, newest first
+     *
+     * @param filter filters
+     * @param offset number of rows to skip
+     * @param limit max number of rows
+     * @param descriptionPreviewLength max number of description characters to select
+     * @return {@link Flux} of {@link AdSummaryDTO} objects with descriptions cut to previews
+     */
+    public Flux<AdSummaryDTO> findSummaries(AdSqlFilter filter, long offset, int limit, int descriptionPreviewLength) {
+        String sql = SUMMARY_COLUMNS + filter.where() + " order by a.post_date desc limit :limit offset :offset";
+        return filter.bind(databaseClient.sql(sql))
+                //one extra character is selected so that truncated previews can be marked
+                .bind("descriptionLength", descriptionPreviewLength + 1)
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(ReactiveAdRepository::toSummary)
+                .all()
+                .map(summary -> summary.withDescriptionPreview(descriptionPreviewLength));
+    }
+
+    /**
+     * Counts ads matching the filters
+     *
+     * @param filter filters
+     * @return {@link Mono} with the number of ads
+     */
+    public Mono<Long> count(AdSqlFilter filter) {
+        return filter.bind(databaseClient.sql("select count(*) from ads a" + filter.where()))
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    /**
+     * Finds an ad with its seller
+     *
+     * @param id ID of the ad
+     * @return {@link Mono} with the {@link AdDTO}, empty if there is no ad with the ID
+     */
+    public Mono<AdDTO> findById(Long id) {
+        return databaseClient.sql(DETAIL_QUERY)
+                .bind("id", id)
+                .map(ReactiveAdRepository::toDetails)
+                .one();
+    }
+
+    private static AdSummaryDTO toSummary(Readable row) {
+        return new AdSummaryDTO(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("description", String.class),
+                row.get("image_url", String.class),
+                row.get("price", Double.class),
+                row.get("category", String.class),
+                row.get("city", String.class),
+                row.get("post_date", LocalDateTime.class),
+                new AdSummaryDTO.Seller(
+                        row.get("seller_id", Long.class),
+                        row.get("username", String.class),
+                        row.get("phone_number", String.class),
+                        row.get("registration_date", LocalDate.class)));
+    }
+
+    private static AdDTO toDetails(Readable row) {
+        AdSellerDTO seller = new AdSellerDTO();
+        seller.setId(row.get("seller_id", Long.class));
+        seller.setUsername(row.get("username", String.class));
+        seller.setPhoneNumber(row.get("phone_number", String.class));
+        seller.setRegistrationDate(row.get("registration_date", LocalDate.class));
+
+        AdDTO ad = new AdDTO();
+        ad.setId(row.get("id", Long.class));
+        ad.setName(row.get("name", String.class));
+        ad.setDescription(row.get("description", String.class));
+        ad.setImageUrl(row.get("image_url", String.class));
+        ad.setPrice(row.get("price", Double.class));
+        ad.setCategory(row.get("category", String.class));
+        ad.setCity(row.get("city", String.class));
+        ad.setPostDate(row.get("post_date", LocalDateTime.class));
+        ad.setVersion(row.get("version", Long.class));
+        ad.setLastModified(row.get("last_modified", Instant.class));
+        ad.setSeller(seller);
+        return ad;
+    }
+}
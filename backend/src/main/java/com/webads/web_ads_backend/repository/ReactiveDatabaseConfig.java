@@ -0,0 +1,70 @@
+package com.webads.web_ads_backend.repository;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Duration;
+
+/**
+ * R2DBC connection pool of the reactive read API, next to the JDBC pool used by JPA.
+ * Spring Boot's R2DBC auto-configuration is excluded, so that the JDBC transaction manager stays the only one,
+ * and the pool is not a bean because the JDBC data source auto-configuration backs off when a connection factory bean exists.
+ */
+@Configuration
+@ConditionalOnProperty(name = "ads.reactive.enabled", havingValue = "true")
+public class ReactiveDatabaseConfig implements DisposableBean {
+
+    private final ConnectionPool connectionPool;
+
+    public ReactiveDatabaseConfig(@Value("${ads.reactive.url:}") String url,
+                                  @Value("${spring.datasource.url}") String jdbcUrl,
+                                  @Value("${spring.datasource.username}") String username,
+                                  @Value("${spring.datasource.password}") String password,
+                                  @Value("${ads.reactive.pool-size:10}") int poolSize,
+                                  @Value("${ads.reactive.max-acquire-time:30s}") Duration maxAcquireTime) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url.isBlank() ? toR2dbcUrl(jdbcUrl) : url)
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("reactive-ads")
+                .initialSize(0)
+                .maxSize(poolSize)
+                .maxAcquireTime(maxAcquireTime)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient reactiveDatabaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+
+    /**
+     * Turns a postgres JDBC URL into an R2DBC one, JDBC specific URL parameters are dropped
+     *
+     * @param jdbcUrl URL of the JDBC data source
+     * @return R2DBC URL of the same database
+     * @throws IllegalArgumentException if the URL is not a JDBC URL
+     */
+    static String toR2dbcUrl(String jdbcUrl) {
+        if (!jdbcUrl.startsWith("jdbc:")) {
+            throw new IllegalArgumentException("Not a JDBC URL: " + jdbcUrl);
+        }
+        int parameters = jdbcUrl.indexOf('?');
+        return "r2dbc:" + jdbcUrl.substring("jdbc:".length(), parameters < 0 ? jdbcUrl.length() : parameters);
+    }
+}
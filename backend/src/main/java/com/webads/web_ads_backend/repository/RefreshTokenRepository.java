@@ -1,18 +1,42 @@
 package com.webads.web_ads_backend.repository;
 
 import com.webads.web_ads_backend.model.RefreshToken;
-import com.webads.web_ads_backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.Optional;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
 
-    Optional<RefreshToken> findByToken(String token);
+    /**
+     * Finds a refresh token together with its user
+     *
+     * @param tokenHash SHA-256 digest of the token
+     * @return {@link Optional} with the {@link RefreshToken}
+     */
+    @Query("select r from RefreshToken r join fetch r.user where r.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHash(@Param("tokenHash") byte[] tokenHash);
 
-    void deleteByUser(User user);
+    @Modifying
+    @Query("delete from RefreshToken r where r.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
 
-    Optional<RefreshToken> findByUserId(Long userId);
-}
\ No newline at end of file
+    /**
+     * Deletes up to limit expired refresh tokens in its own transaction
+     *
+     * @param now tokens that expired before this time are deleted
+     * @param limit max number of tokens to delete
+     * @return number of deleted tokens
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "delete from refresh_tokens where id in " +
+            "(select id from refresh_tokens where expiry_date < :now limit :limit)", nativeQuery = true)
+    int deleteExpired(@Param("now") Instant now, @Param("limit") int limit);
+}
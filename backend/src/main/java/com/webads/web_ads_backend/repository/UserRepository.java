@@ -3,9 +3,7 @@ package com.webads.web_ads_backend.repository;
 import com.webads.web_ads_backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
-import java.util.Optional;
-@Repository
-public interface UserRepository extends JpaRepository<User, Long>  {
 
-    Optional<User> findByUsername(String username);
+@Repository
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 }
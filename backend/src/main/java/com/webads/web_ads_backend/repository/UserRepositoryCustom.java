@@ -0,0 +1,18 @@
+package com.webads.web_ads_backend.repository;
+
+import com.webads.web_ads_backend.model.User;
+
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Finds a user by the username natural ID
+     * The ID of the user is resolved from the natural ID cache and the user from the entity cache,
+     * so lookups of recently seen users do not query the database
+     *
+     * @param username username of the user
+     * @return {@link Optional} with the {@link User}, empty if there is no user with the username
+     */
+    Optional<User> findByUsername(String username);
+}
@@ -0,0 +1,461 @@
+package com.webads.web_ads_backend.search;
+
+import com.webads.web_ads_backend.model.Category;
+import com.webads.web_ads_backend.repository.AdIndexView;
+import com.webads.web_ads_backend.repository.AdRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory category and price aggregates of all ads.
+ * Holds a sorted price array per category, so counts for any price range are two binary searches.
+ * Ad writes of this instance are applied after they commit, writes of other instances show up with the next rebuild.
+ * Filters the aggregates do not cover (ad name, seller) have to be counted in the database.
+ */
+@Component
+public class AdFacets {
+
+    private final Logger logger = LoggerFactory.getLogger(AdFacets.class);
+
+    private final AdRepository adRepository;
+
+    private Aggregates aggregates = new Aggregates();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready = false;
+
+    /**
+     * Changes made while a rebuild reads the database, replayed on the rebuilt aggregates
+     */
+    private List<Consumer<Aggregates>> changesDuringRebuild = null;
+
+    @Value("${ads.facets.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ads.facets.price-buckets:0,10,25,50,100,250,500,1000}")
+    private double[] priceBuckets;
+
+    @Value("${ads.facets.rebuild-batch-size:10000}")
+    private int rebuildBatchSize;
+
+    @Autowired
+    public AdFacets(AdRepository adRepository) {
+        this.adRepository = adRepository;
+    }
+
+    /**
+     * Loads the aggregates from the database once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            logger.info("Ad facets disabled.");
+            return;
+        }
+        rebuild();
+    }
+
+    /**
+     * Reloads the aggregates from the database, the current ones keep answering until the new ones are complete
+     */
+    @Scheduled(fixedDelayString = "${ads.facets.rebuild-interval:10m}", initialDelayString = "${ads.facets.rebuild-interval:10m}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        logger.info("building ad facets...");
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Aggregates rebuilt = new Aggregates();
+        rebuilt.clearUnsorted();
+        long loaded = 0;
+        Long lastId = 0L;
+        List<AdIndexView> batch;
+        try {
+            do {
+                batch = adRepository.findIndexViewsAfter(lastId, PageRequest.of(0, rebuildBatchSize));
+                for (AdIndexView view : batch) {
+                    rebuilt.put(view.getId(), view.getCategory(), view.getPrice());
+                    lastId = view.getId();
+                }
+                loaded += batch.size();
+            } while (batch.size() == rebuildBatchSize);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        rebuilt.sort();
+
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+            changesDuringRebuild = null;
+            aggregates = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("ad facets built, {} ads loaded", loaded);
+    }
+
+    /**
+     * Adds an ad or moves it to its new category and price
+     *
+     * @param id ID of the ad
+     * @param category category of the ad
+     * @param price price of the ad
+     */
+    public void put(Long id, Category category, Double price) {
+        if (!enabled || id == null || category == null || price == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            aggregates.put(id, category, price);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(rebuilt -> rebuilt.put(id, category, price));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an ad
+     *
+     * @param id ID of the ad
+     */
+    public void remove(Long id) {
+        if (!enabled || id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            aggregates.remove(id);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(rebuilt -> rebuilt.remove(id));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Counts ads per category within the price range, ignoring the category filter
+     *
+     * @param minPrice minimum price, null for no minimum
+     * @param maxPrice maximum price, null for no maximum
+     * @return {@link Optional} with counts of every category, empty if the aggregates are not loaded
+     */
+    public Optional<Map<Category, Long>> categoryCounts(Double minPrice, Double maxPrice) {
+        if (!enabled || !ready) {
+            return Optional.empty();
+        }
+        Map<Category, Long> counts = new EnumMap<>(Category.class);
+        lock.readLock().lock();
+        try {
+            for (Category category : Category.values()) {
+                counts.put(category, (long) aggregates.pricesByCategory[category.ordinal()].countBetween(minPrice, maxPrice));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Optional.of(counts);
+    }
+
+    /**
+     * Counts ads per price bucket, ignoring the price filter
+     *
+     * @param category category to count, null for all categories
+     * @return {@link Optional} with one count per bucket of {@link #getPriceBuckets()}, empty if the aggregates are not loaded
+     */
+    public Optional<long[]> priceHistogram(Category category) {
+        if (!enabled || !ready) {
+            return Optional.empty();
+        }
+        long[] counts = new long[priceBuckets.length];
+        lock.readLock().lock();
+        try {
+            for (Category counted : Category.values()) {
+                if (category == null || category == counted) {
+                    aggregates.pricesByCategory[counted.ordinal()].addHistogram(priceBuckets, counts);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Optional.of(counts);
+    }
+
+    /**
+     * @return lower bounds of the price buckets, each bucket ends where the next one starts and the last one is open
+     */
+    public double[] getPriceBuckets() {
+        return priceBuckets.clone();
+    }
+
+    /**
+     * Category and price of every ad with the sorted prices of each category
+     */
+    private static final class Aggregates {
+
+        private final PriceTable prices = new PriceTable();
+
+        private final SortedPrices[] pricesByCategory = new SortedPrices[Category.values().length];
+
+        Aggregates() {
+            for (int i = 0; i < pricesByCategory.length; i++) {
+                pricesByCategory[i] = new SortedPrices();
+            }
+        }
+
+        void put(long id, Category category, double price) {
+            int slot = prices.find(id);
+            if (slot >= 0) {
+                pricesByCategory[prices.categories[slot]].remove(prices.prices[slot]);
+            }
+            prices.put(id, (byte) category.ordinal(), price);
+            pricesByCategory[category.ordinal()].add(price);
+        }
+
+        void remove(long id) {
+            int slot = prices.find(id);
+            if (slot >= 0) {
+                pricesByCategory[prices.categories[slot]].remove(prices.prices[slot]);
+                prices.remove(slot);
+            }
+        }
+
+        void clearUnsorted() {
+            for (SortedPrices categoryPrices : pricesByCategory) {
+                categoryPrices.clearUnsorted();
+            }
+        }
+
+        void sort() {
+            for (SortedPrices categoryPrices : pricesByCategory) {
+                categoryPrices.sort();
+            }
+        }
+    }
+
+    /**
+     * Sorted prices of one category.
+     * While rebuilding, prices are appended unsorted and sorted once at the end.
+     */
+    private static final class SortedPrices {
+
+        private double[] values = new double[16];
+        private int size = 0;
+        private boolean sorted = true;
+
+        void add(double price) {
+            int position = !sorted || (size > 0 && values[size - 1] <= price) ? size : lowerBound(price);
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, position, values, position + 1, size - position);
+            values[position] = price;
+            size++;
+        }
+
+        void remove(double price) {
+            int position = sorted ? lowerBound(price) : indexOf(price);
+            if (position >= 0 && position < size && values[position] == price) {
+                System.arraycopy(values, position + 1, values, position, size - position - 1);
+                size--;
+            }
+        }
+
+        void clearUnsorted() {
+            values = new double[16];
+            size = 0;
+            sorted = false;
+        }
+
+        void sort() {
+            Arrays.sort(values, 0, size);
+            sorted = true;
+        }
+
+        private int indexOf(double price) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (values[i] == price) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int countBetween(Double min, Double max) {
+            int from = min == null ? 0 : lowerBound(min);
+            int to = max == null ? size : upperBound(max);
+            return Math.max(0, to - from);
+        }
+
+        void addHistogram(double[] buckets, long[] counts) {
+            for (int i = 0; i < buckets.length; i++) {
+                int from = lowerBound(buckets[i]);
+                int to = i + 1 < buckets.length ? lowerBound(buckets[i + 1]) : size;
+                counts[i] += Math.max(0, to - from);
+            }
+        }
+
+        /**
+         * @return index of the first price not lower than the given one
+         */
+        private int lowerBound(double price) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] < price) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return index of the first price higher than the given one
+         */
+        private int upperBound(double price) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] <= price) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Category and price of every ad by ID, an open addressing hash table on primitive arrays
+     * so millions of ads take a few dozen megabytes
+     */
+    private static final class PriceTable {
+
+        private static final long EMPTY = 0;
+
+        private long[] ids;
+        private byte[] categories;
+        private double[] prices;
+        private int size;
+
+        PriceTable() {
+            clear();
+        }
+
+        void clear() {
+            ids = new long[1024];
+            categories = new byte[1024];
+            prices = new double[1024];
+            size = 0;
+        }
+
+        /**
+         * @return slot of the ad, -1 if it is not in the table
+         */
+        int find(long id) {
+            int mask = ids.length - 1;
+            for (int slot = slot(id, mask); ; slot = (slot + 1) & mask) {
+                if (ids[slot] == id) {
+                    return slot;
+                }
+                if (ids[slot] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(long id, byte category, double price) {
+            if ((size + 1) * 2 > ids.length) {
+                resize();
+            }
+            int mask = ids.length - 1;
+            int slot = slot(id, mask);
+            while (ids[slot] != EMPTY && ids[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            if (ids[slot] == EMPTY) {
+                size++;
+            }
+            ids[slot] = id;
+            categories[slot] = category;
+            prices[slot] = price;
+        }
+
+        /**
+         * Removes the entry and shifts back the following entries of the probe sequence
+         */
+        void remove(int slot) {
+            int mask = ids.length - 1;
+            int gap = slot;
+            for (int next = (gap + 1) & mask; ids[next] != EMPTY; next = (next + 1) & mask) {
+                int home = slot(ids[next], mask);
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    ids[gap] = ids[next];
+                    categories[gap] = categories[next];
+                    prices[gap] = prices[next];
+                    gap = next;
+                }
+            }
+            ids[gap] = EMPTY;
+            size--;
+        }
+
+        private void resize() {
+            long[] oldIds = ids;
+            byte[] oldCategories = categories;
+            double[] oldPrices = prices;
+            ids = new long[oldIds.length * 2];
+            categories = new byte[oldIds.length * 2];
+            prices = new double[oldIds.length * 2];
+            size = 0;
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != EMPTY) {
+                    put(oldIds[i], oldCategories[i], oldPrices[i]);
+                }
+            }
+        }
+
+        private static int slot(long id, int mask) {
+            return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.webads.web_ads_backend.search;
+
+import com.webads.web_ads_backend.repository.AdIndexView;
+import com.webads.web_ads_backend.repository.AdRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram inverted index over ad names.
+ * Used to narrow down the name substring filter to a set of candidate ad IDs before querying the database.
+ * The index only knows the ads read by its last rebuild and the changes committed on this instance since, so queries
+ * also match ads above {@link Candidates#indexedUpTo()} in the database, which covers ads created by other instances or
+ * directly in the database after the rebuild. Candidates may include IDs of deleted ads and ads under their old names,
+ * so the LIKE filter still has to be applied on them. Renames on other instances are picked up by the next rebuild.
+ */
+@Component
+public class AdNameIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final Logger logger = LoggerFactory.getLogger(AdNameIndex.class);
+
+    private final AdRepository adRepository;
+
+    private Map<Long, PostingList> postings = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready = false;
+
+    private long indexedUpTo = 0;
+
+    /**
+     * Changes made while a rebuild reads the database, replayed on the rebuilt postings
+     */
+    private List<Consumer<Map<Long, PostingList>>> changesDuringRebuild = null;
+
+    @Value("${ads.name-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ads.name-index.max-candidates:1000}")
+    private int maxCandidates;
+
+    @Value("${ads.name-index.rebuild-batch-size:10000}")
+    private int rebuildBatchSize;
+
+    @Value("${ads.name-index.id-margin:1000}")
+    private long idMargin;
+
+    @Autowired
+    public AdNameIndex(AdRepository adRepository) {
+        this.adRepository = adRepository;
+    }
+
+    /**
+     * Builds the index from the database once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            logger.info("Ad name index disabled.");
+            return;
+        }
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the index from the database, the current index keeps answering queries until the new one is complete
+     */
+    @Scheduled(fixedDelayString = "${ads.name-index.rebuild-interval:1h}", initialDelayString = "${ads.name-index.rebuild-interval:1h}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        logger.info("building ad name index...");
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Long, PostingList> rebuilt = new HashMap<>();
+        long indexed = 0;
+        Long lastId = 0L;
+        List<AdIndexView> batch;
+        try {
+            do {
+                batch = adRepository.findIndexViewsAfter(lastId, PageRequest.of(0, rebuildBatchSize));
+                for (AdIndexView view : batch) {
+                    addTo(rebuilt, view.getId(), grams(view.getName()));
+                    lastId = view.getId();
+                }
+                indexed += batch.size();
+            } while (batch.size() == rebuildBatchSize);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+            changesDuringRebuild = null;
+            postings = rebuilt;
+            //other instances may still commit IDs of blocks they reserved before the last indexed ID
+            indexedUpTo = Math.max(0, lastId - idMargin);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("ad name index built, {} ads indexed", indexed);
+    }
+
+    /**
+     * Adds an ad name to the index
+     *
+     * @param id ID of the ad
+     * @param name name of the ad
+     */
+    public void add(Long id, String name) {
+        if (!enabled || id == null || name == null) {
+            return;
+        }
+        Set<Long> grams = grams(name);
+        lock.writeLock().lock();
+        try {
+            addTo(postings, id, grams);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(rebuilt -> addTo(rebuilt, id, grams));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an ad name from the index
+     *
+     * @param id ID of the ad
+     * @param name name under which the ad was indexed
+     */
+    public void remove(Long id, String name) {
+        if (!enabled || id == null || name == null) {
+            return;
+        }
+        Set<Long> grams = grams(name);
+        lock.writeLock().lock();
+        try {
+            removeFrom(postings, id, grams);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(rebuilt -> removeFrom(rebuilt, id, grams));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves an ad from its old name to the new one
+     *
+     * @param id ID of the ad
+     * @param oldName name under which the ad was indexed
+     * @param newName new name of the ad
+     */
+    public void update(Long id, String oldName, String newName) {
+        if (oldName != null && oldName.equals(newName)) {
+            return;
+        }
+        remove(id, oldName);
+        add(id, newName);
+    }
+
+    /**
+     * Finds IDs of ads whose name may contain the given text
+     *
+     * @param text text to search for
+     * @return {@link Optional} with the candidates, empty if the index can not narrow the search
+     * (index not ready, text shorter than a trigram or too many candidates)
+     */
+    public Optional<Candidates> candidates(String text) {
+        if (!enabled || !ready || text == null) {
+            return Optional.empty();
+        }
+        Set<Long> grams = grams(text);
+        if (grams.isEmpty()) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>(grams.size());
+            for (Long gram : grams) {
+                PostingList list = postings.get(gram);
+                if (list == null) {
+                    return Optional.of(new Candidates(Collections.emptySet(), indexedUpTo));
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            long[] result = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+            int resultSize = result.length;
+            for (int i = 1; i < lists.size() && resultSize > 0; i++) {
+                resultSize = lists.get(i).retainIn(result, resultSize);
+            }
+            if (resultSize > maxCandidates) {
+                return Optional.empty();
+            }
+
+            Set<Long> ids = new LinkedHashSet<>(resultSize * 2);
+            for (int i = 0; i < resultSize; i++) {
+                ids.add(result[i]);
+            }
+            return Optional.of(new Candidates(ids, indexedUpTo));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void addTo(Map<Long, PostingList> postings, Long id, Set<Long> grams) {
+        for (Long gram : grams) {
+            postings.computeIfAbsent(gram, g -> new PostingList()).add(id);
+        }
+    }
+
+    private static void removeFrom(Map<Long, PostingList> postings, Long id, Set<Long> grams) {
+        for (Long gram : grams) {
+            PostingList list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private static Set<Long> grams(String text) {
+        String normalized = text.toLowerCase(Locale.ROOT);
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= normalized.length(); i++) {
+            grams.add(((long) normalized.charAt(i) << 32)
+                    | ((long) normalized.charAt(i + 1) << 16)
+                    | normalized.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    /**
+     * Ads that may match a name filter
+     *
+     * @param ids IDs of indexed ads whose name may contain the text
+     * @param indexedUpTo ads with a higher ID may be missing from the index and have to be matched by the database
+     */
+    public record Candidates(Set<Long> ids, long indexedUpTo) {
+    }
+
+    /**
+     * Sorted array of ad IDs. Ads are mostly added in increasing ID order, so adding is usually an append.
+     */
+    private static final class PostingList {
+
+        private long[] ids = new long[4];
+        private int size = 0;
+
+        void add(long id) {
+            if (size > 0 && ids[size - 1] < id) {
+                append(id);
+                return;
+            }
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            int insertAt = -position - 1;
+            ensureCapacity();
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * Keeps only the IDs from the sorted target array that are also in this list
+         *
+         * @return new number of IDs in the target array
+         */
+        int retainIn(long[] target, int targetSize) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < targetSize; i++) {
+                int position = Arrays.binarySearch(ids, from, size, target[i]);
+                if (position >= 0) {
+                    target[kept++] = target[i];
+                    from = position + 1;
+                } else {
+                    from = -position - 1;
+                }
+            }
+            return kept;
+        }
+
+        private void append(long id) {
+            ensureCapacity();
+            ids[size++] = id;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+    }
+}
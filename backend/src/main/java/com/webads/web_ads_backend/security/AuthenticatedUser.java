@@ -0,0 +1,41 @@
+package com.webads.web_ads_backend.security;
+
+import com.webads.web_ads_backend.model.User;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Security principal carrying the user id and username.
+ * Built from the verified JWT claims on authenticated requests, so no user lookup is needed.
+ * The password is only set when the principal is loaded from the database during login.
+ */
+@Getter
+public class AuthenticatedUser implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    private final String password;
+
+    public AuthenticatedUser(Long id, String username, String password) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+    }
+
+    public AuthenticatedUser(Long id, String username) {
+        this(id, username, null);
+    }
+
+    public AuthenticatedUser(User user) {
+        this(user.getId(), user.getUsername(), user.getPassword());
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Collections.emptyList();
+    }
+}
@@ -2,16 +2,17 @@ package com.webads.web_ads_backend.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.webads.web_ads_backend.repository.UserRepository;
+import com.webads.web_ads_backend.datasource.ReplicaRoutingDataSource;
 import com.webads.web_ads_backend.model.User;
 
-import java.util.ArrayList;
-
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -22,9 +23,26 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        //read from the primary, a user has to be able to sign in right after registering
+        User user = ReplicaRoutingDataSource.onPrimary(() -> userRepository.findByUsername(username))
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
-        return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), new ArrayList<>());
+        return new AuthenticatedUser(user);
+    }
+
+    /**
+     * Replaces the password hash of a user, called by Spring Security after a successful login
+     * when the stored hash was created with a different work factor
+     *
+     * @param user user that logged in
+     * @param newPassword new password hash
+     * @return user with the new password hash
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) user;
+        userRepository.findById(authenticatedUser.getId()).ifPresent(storedUser -> storedUser.setPassword(newPassword));
+        return new AuthenticatedUser(authenticatedUser.getId(), authenticatedUser.getUsername(), newPassword);
     }
-}
\ No newline at end of file
+}
@@ -1,29 +1,85 @@
 package com.webads.web_ads_backend.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+/**
+ * Issues and verifies access tokens.
+ * Verification time is published as jwt.validation{result=cached|verified|invalid},
+ * the cache of verified tokens as cache.*{cache="jwt.verified-tokens"}.
+ */
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private static final String USER_ID_CLAIM = "uid";
 
-    @Value("${jwt.expiration}")
-    private long expiration;
+    private final long expiration;
 
-    public String generateToken(UserDetails userDetails) {
+    private final Key signingKey;
+
+    private final JwtParser parser;
+
+    /**
+     * Claims of tokens whose signature was already verified, keyed by the token digest.
+     * Entries expire together with the token.
+     */
+    private final Cache<String, Claims> verifiedTokens;
+
+    private final Timer cachedValidations;
+
+    private final Timer verifiedValidations;
+
+    private final Timer invalidValidations;
+
+    @Autowired
+    public JwtUtil(MeterRegistry meterRegistry,
+                   @Value("${jwt.secret}") String secret,
+                   @Value("${jwt.expiration}") long expiration,
+                   @Value("${jwt.cache.maximum-size:10000}") long cacheMaximumSize) {
+        this.expiration = expiration;
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified-tokens");
+        this.cachedValidations = validationTimer(meterRegistry, "cached");
+        this.verifiedValidations = validationTimer(meterRegistry, "verified");
+        this.invalidValidations = validationTimer(meterRegistry, "invalid");
+    }
+
+    public String generateToken(AuthenticatedUser user) {
         Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, userDetails.getUsername());
+        claims.put(USER_ID_CLAIM, user.getId());
+        return createToken(claims, user.getUsername());
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
@@ -32,20 +88,61 @@ public class JwtUtil {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(SignatureAlgorithm.HS256, secret).compact();
+                .signWith(signingKey, SignatureAlgorithm.HS256).compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        final Claims claims = parseToken(token);
+        return (claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims));
+    }
+
+    /**
+     * Verifies the token and returns all of its claims
+     * Tokens verified before are served from the cache until they expire
+     *
+     * @param token JWT
+     * @return {@link Claims} of the token
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, has an invalid signature or has expired
+     */
+    public Claims parseToken(String token) {
+        long start = System.nanoTime();
+        String digest = digest(token);
+        Claims claims = verifiedTokens.getIfPresent(digest);
+        if (claims != null) {
+            cachedValidations.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return claims;
+        }
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException e) {
+            invalidValidations.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        verifiedTokens.put(digest, claims);
+        verifiedValidations.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return claims;
     }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * Extracts the user id claim
+     *
+     * @param claims verified token claims
+     * @return user id or null for tokens issued without the claim
+     */
+    public Long extractUserId(Claims claims) {
+        return claims.get(USER_ID_CLAIM, Long.class);
+    }
+
+    public Long extractUserId(String token) {
+        return extractUserId(parseToken(token));
+    }
+
+    private Boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
     public Date extractExpiration(String token) {
@@ -53,11 +150,45 @@ public class JwtUtil {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseToken(token);
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
+    private static Timer validationTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("jwt.validation")
+                .description("Time to verify an access token, cached tokens skip the signature check")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static class TokenExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            if (claims.getExpiration() == null) {
+                return 0;
+            }
+            long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
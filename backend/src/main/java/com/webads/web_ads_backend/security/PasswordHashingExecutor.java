@@ -0,0 +1,68 @@
+package com.webads.web_ads_backend.security;
+
+import com.webads.web_ads_backend.exceptions.ServerBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Pool for the requests that hash or check passwords, login and register.
+ * BCrypt is slow on purpose, so these requests run here and not on request threads, a burst of logins
+ * can use all CPUs of the pool but no request threads. Only the hashing runs here, the database work of these requests
+ * does not, so a slow database does not hold the pool. Requests that do not fit into the queue are rejected right away
+ * instead of waiting behind it.
+ * The queue depth is published as executor.queued{name="password.hashing"}, rejections as password.hashing.rejected.
+ */
+@Component
+public class PasswordHashingExecutor implements DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+
+    private final Counter rejected;
+
+    @Autowired
+    public PasswordHashingExecutor(MeterRegistry meterRegistry,
+                                   @Value("${auth.password.hashing-threads:0}") int threads,
+                                   @Value("${auth.password.hashing-queue-capacity:100}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hashing-"));
+        this.rejected = Counter.builder("password.hashing.rejected")
+                .description("Login and register requests rejected because the password hashing queue was full")
+                .register(meterRegistry);
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "password.hashing");
+    }
+
+    /**
+     * Runs a task that hashes or checks a password
+     *
+     * @param task task to run
+     * @return {@link CompletableFuture} completed with the result of the task
+     * @throws ServerBusyException if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServerBusyException("Too many login and register requests, try again later.");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,105 @@
+package com.webads.web_ads_backend.security;
+
+import io.jsonwebtoken.io.Decoders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Creates and checks refresh tokens of the form {@code <expiry>.<random>.<signature>}.
+ * The signature covers the expiry, so forged, mangled and expired tokens are rejected without a database lookup.
+ * Only the SHA-256 digest of a token is stored, a leaked table does not contain usable tokens.
+ */
+@Component
+public class RefreshTokenCodec {
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final int RANDOM_BYTES = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec signingKey;
+
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenCodec(@Value("${jwt.secret}") String secret) {
+        //own key derived from the JWT secret, a refresh token signature is never valid as an access token signature
+        SecretKeySpec jwtKey = new SecretKeySpec(Decoders.BASE64.decode(secret), MAC_ALGORITHM);
+        this.signingKey = new SecretKeySpec(mac(jwtKey, "refresh-token"), MAC_ALGORITHM);
+    }
+
+    /**
+     * Creates a new random refresh token
+     *
+     * @param expiry expiry of the token, kept with second precision
+     * @return refresh token
+     */
+    public String create(Instant expiry) {
+        byte[] bytes = new byte[RANDOM_BYTES];
+        random.nextBytes(bytes);
+        String payload = expiry.getEpochSecond() + "." + ENCODER.encodeToString(bytes);
+        return payload + "." + ENCODER.encodeToString(mac(signingKey, payload));
+    }
+
+    /**
+     * Checks the signature of a refresh token, does not check whether the token has expired
+     *
+     * @param token refresh token
+     * @return {@link Optional} with the expiry of the token, empty if the token was not created by this codec
+     */
+    public Optional<Instant> expiry(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        int signatureStart = token.lastIndexOf('.');
+        int randomStart = token.indexOf('.');
+        if (randomStart <= 0 || signatureStart <= randomStart) {
+            return Optional.empty();
+        }
+        try {
+            byte[] signature = DECODER.decode(token.substring(signatureStart + 1));
+            String payload = token.substring(0, signatureStart);
+            if (!MessageDigest.isEqual(signature, mac(signingKey, payload))) {
+                return Optional.empty();
+            }
+            return Optional.of(Instant.ofEpochSecond(Long.parseLong(token.substring(0, randomStart))));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param token refresh token
+     * @return SHA-256 digest of the token, the key under which the token is stored
+     */
+    public static byte[] digest(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] mac(SecretKeySpec key, String data) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+        }
+    }
+}
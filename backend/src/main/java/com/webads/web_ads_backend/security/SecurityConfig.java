@@ -1,6 +1,8 @@
 package com.webads.web_ads_backend.security;
 
+import com.webads.web_ads_backend.ratelimit.RateLimitFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -8,7 +10,6 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -24,9 +25,12 @@ public class SecurityConfig {
 
     private final JwtRequestFilter jwtRequestFilter;
 
+    private final RateLimitFilter rateLimitFilter;
+
     @Autowired
-    public SecurityConfig(JwtRequestFilter jwtRequestFilter){
+    public SecurityConfig(JwtRequestFilter jwtRequestFilter, RateLimitFilter rateLimitFilter){
         this.jwtRequestFilter = jwtRequestFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     @Bean
@@ -38,17 +42,25 @@ public class SecurityConfig {
 
                 .authorizeHttpRequests(authorize -> authorize
                         .requestMatchers("/api/auth/**").permitAll()
-                        .requestMatchers(HttpMethod.GET, "/api/ads", "/api/ads/{id}").permitAll()
+                        .requestMatchers("/actuator/health", "/actuator/health/liveness", "/actuator/health/readiness").permitAll()
+                        //scraped without a token, only served on the management port, which is not published
+                        .requestMatchers("/actuator/prometheus").permitAll()
+                        //before /api/ads/{id}, which would match it too
+                        .requestMatchers(HttpMethod.GET, "/api/ads/export").authenticated()
+                        .requestMatchers(HttpMethod.GET, "/api/ads", "/api/ads/facets", "/api/ads/{id}").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/rx/ads", "/api/rx/ads/{id}").permitAll()
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class)
+                //after the JWT filter, signed in users are limited by user id
+                .addFilterAfter(rateLimitFilter, JwtRequestFilter.class);
 
         return http.build();
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.password.bcrypt-strength:10}") int strength) {
+        return new RehashingBCryptPasswordEncoder(strength);
     }
 
     @Bean
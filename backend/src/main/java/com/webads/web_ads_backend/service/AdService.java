@@ -1,5 +1,9 @@
 package com.webads.web_ads_backend.service;
 
+import com.webads.web_ads_backend.cache.AdDetailCache;
+import com.webads.web_ads_backend.dto.AdDTO;
+import com.webads.web_ads_backend.dto.AdFacetsDTO;
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
 import com.webads.web_ads_backend.dto.CreateAdDTO;
 import com.webads.web_ads_backend.exceptions.ResourceNotFoundException;
 import com.webads.web_ads_backend.model.Ad;
@@ -7,26 +11,69 @@ import com.webads.web_ads_backend.model.Category;
 import com.webads.web_ads_backend.model.User;
 import com.webads.web_ads_backend.repository.AdRepository;
 import com.webads.web_ads_backend.repository.UserRepository;
+import com.webads.web_ads_backend.search.AdFacets;
+import com.webads.web_ads_backend.search.AdNameIndex;
+import com.webads.web_ads_backend.specification.AdCursor;
 import com.webads.web_ads_backend.specification.AdSpecificationBuilder;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import org.springframework.security.access.AccessDeniedException;
 
 @Service
 public class AdService {
 
+    private static final Sort CURSOR_SORT = Sort.by("postDate").descending().and(Sort.by("id").descending());
+
+    private static final Sort EXPORT_SORT = Sort.by("id");
+
     private final AdRepository adRepository;
 
     private final UserRepository userRepository;
 
+    private final AdNameIndex adNameIndex;
+
+    private final AdFacets adFacets;
+
+    private final AdDetailCache adDetailCache;
+
+    @Value("${ads.listing.description-preview-length:200}")
+    private int descriptionPreviewLength;
+
+    @Value("${ads.batch.max-size:1000}")
+    private int batchMaxSize;
+
+    @Value("${ads.export.fetch-size:1000}")
+    private int exportFetchSize;
+
     @Autowired
-    public AdService(AdRepository adRepository, UserRepository userRepository){
+    public AdService(AdRepository adRepository, UserRepository userRepository, AdNameIndex adNameIndex, AdFacets adFacets,
+                     AdDetailCache adDetailCache){
         this.adRepository = adRepository;
         this.userRepository = userRepository;
+        this.adNameIndex = adNameIndex;
+        this.adFacets = adFacets;
+        this.adDetailCache = adDetailCache;
     }
 
     /**
@@ -38,10 +85,54 @@ public class AdService {
      * @throws ResourceNotFoundException if the user with that username is not found
      * @throws IllegalArgumentException if the provided category is invalid
      */
+    @Transactional
     public Ad createAd(CreateAdDTO createAdDTO, String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + username));
 
+        Ad savedAd = adRepository.save(toAd(createAdDTO, user, LocalDateTime.now()));
+        afterCommit(() -> {
+            adNameIndex.add(savedAd.getId(), savedAd.getName());
+            adFacets.put(savedAd.getId(), savedAd.getCategory(), savedAd.getPrice());
+        });
+        return savedAd;
+    }
+
+    /**
+     * Creates multiple ads for one user in a single transaction
+     * Ads are inserted with JDBC batches, if one ad is invalid none are created
+     *
+     * @param createAdDTOs DTOs containing the new ads data
+     * @param username username of the user creating the ads
+     * @return {@link List} of created {@link Ad} objects, in the order of the DTOs
+     * @throws ResourceNotFoundException if the user with that username is not found
+     * @throws IllegalArgumentException if there are too many ads or a provided category is invalid
+     */
+    @Transactional
+    public List<Ad> createAds(List<CreateAdDTO> createAdDTOs, String username) {
+        if (createAdDTOs.size() > batchMaxSize) {
+            throw new IllegalArgumentException("At most " + batchMaxSize + " ads can be created at once");
+        }
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + username));
+
+        LocalDateTime postDate = LocalDateTime.now();
+        List<Ad> ads = new ArrayList<>(createAdDTOs.size());
+        for (CreateAdDTO createAdDTO : createAdDTOs) {
+            ads.add(toAd(createAdDTO, user, postDate));
+        }
+
+        List<Ad> savedAds = adRepository.saveAll(ads);
+        afterCommit(() -> {
+            for (Ad savedAd : savedAds) {
+                adNameIndex.add(savedAd.getId(), savedAd.getName());
+                adFacets.put(savedAd.getId(), savedAd.getCategory(), savedAd.getPrice());
+            }
+        });
+        return savedAds;
+    }
+
+    private Ad toAd(CreateAdDTO createAdDTO, User user, LocalDateTime postDate) {
         Ad ad = new Ad();
         ad.setName(createAdDTO.getName());
         ad.setDescription(createAdDTO.getDescription());
@@ -49,20 +140,23 @@ public class AdService {
         ad.setPrice(createAdDTO.getPrice());
         ad.setCity(createAdDTO.getCity());
 
+        ad.setCategory(parseCategory(createAdDTO.getCategory()));
+        ad.setPostDate(postDate);
+        ad.setUser(user);
+        return ad;
+    }
+
+    private Category parseCategory(String category) {
         try {
-            ad.setCategory(Category.valueOf(createAdDTO.getCategory().toUpperCase()));
+            return Category.valueOf(category.toUpperCase());
         } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Invalid category: " + createAdDTO.getCategory());
+            throw new IllegalArgumentException("Invalid category: " + category);
         }
-
-        ad.setPostDate(LocalDateTime.now());
-        ad.setUser(user);
-
-        return adRepository.save(ad);
     }
 
     /**
      * Retrieves a paginated and filtered list of ads
+     * Only the listing columns are selected, with a shortened description
      *
      * @param category category to filter by
      * @param name ad name to filter by
@@ -70,20 +164,40 @@ public class AdService {
      * @param maxPrice maximum price to filter by
      * @param userId ID of the user to filter by
      * @param pageable pagination and sorting information.
-     * @return A {@link Page} of {@link Ad} objects matching the criteria
+     * @return A {@link Page} of {@link AdSummaryDTO} objects matching the criteria
      */
-    public Page<Ad> getAllAds(String category, String name, Double minPrice, Double maxPrice, Long userId, Pageable pageable) {
-        AdSpecificationBuilder builder = new AdSpecificationBuilder();
+    @Transactional(readOnly = true)
+    public Page<AdSummaryDTO> getAllAds(String category, String name, Double minPrice, Double maxPrice, Long userId, Pageable pageable) {
+        Specification<Ad> spec = buildSpecification(category, name, minPrice, maxPrice, userId, null);
+        return adRepository.findSummaries(spec, pageable, descriptionPreviewLength);
+    }
 
-        Specification<Ad> spec = builder
-                .withCategory(category)
-                .withName(name)
-                .withMinPrice(minPrice)
-                .withMaxPrice(maxPrice)
-                .withUserId(userId)
-                .build();
+    /**
+     * Retrieves a filtered slice of ads using keyset pagination
+     * Does not run a count query, one extra row is fetched to detect the next slice
+     *
+     * @param category category to filter by
+     * @param name ad name to filter by
+     * @param minPrice minimum price to filter by
+     * @param maxPrice maximum price to filter by
+     * @param userId ID of the user to filter by
+     * @param cursor position after which to continue, null for the first slice
+     * @param size maximum number of ads in the slice
+     * @return A {@link Slice} of {@link AdSummaryDTO} objects ordered by postDate and id descending
+     * @throws IllegalArgumentException if size is less than one
+     */
+    @Transactional(readOnly = true)
+    public Slice<AdSummaryDTO> getAdsAfterCursor(String category, String name, Double minPrice, Double maxPrice, Long userId, AdCursor cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Size must be at least 1");
+        }
 
-        return adRepository.findAll(spec, pageable);
+        Specification<Ad> spec = buildSpecification(category, name, minPrice, maxPrice, userId, cursor);
+        List<AdSummaryDTO> ads = adRepository.findSummaries(spec, CURSOR_SORT, size + 1, descriptionPreviewLength);
+
+        boolean hasNext = ads.size() > size;
+        List<AdSummaryDTO> content = hasNext ? ads.subList(0, size) : ads;
+        return new SliceImpl<>(content, PageRequest.of(0, size, CURSOR_SORT), hasNext);
     }
 
     /**
@@ -98,53 +212,195 @@ public class AdService {
                 .orElseThrow(() -> new ResourceNotFoundException("Ad with id " + id + " not found."));
     }
 
+    /**
+     * Finds ad details with id, served from {@link AdDetailCache}
+     *
+     * @param id ID of the ad to find
+     * @return {@link AdDTO} object.
+     * @throws ResourceNotFoundException if no ad with the given ID
+     */
+    public AdDTO getAdDetails(Long id) {
+        return adDetailCache.get(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Ad with id " + id + " not found."));
+    }
+
     /**
      * Updates an existing ad
+     * The ad is locked by a query that also checks the owner, the caches and the name index are updated after commit
      *
      * @param id ID of the ad
      * @param updateDTO DTO containing the new data for the ad
-     * @param username username of the user performing the update
+     * @param userId ID of the user performing the update
      * @return {@link Ad} object.
      * @throws ResourceNotFoundException if the ad with the given ID is not found
      * @throws AccessDeniedException if the user is not the owner of the ad
      * @throws IllegalArgumentException if the provided category is invalid
      */
-    public Ad updateAd(Long id, CreateAdDTO updateDTO, String username) {
-        Ad adToUpdate = getAd(id);
+    @Transactional
+    public Ad updateAd(Long id, CreateAdDTO updateDTO, Long userId) {
+        Category category = parseCategory(updateDTO.getCategory());
 
-        if (!adToUpdate.getUser().getUsername().equals(username)) {
-            throw new AccessDeniedException("You do not have permission to edit this ad.");
-        }
+        Ad ad = adRepository.findOwnedForUpdate(id, userId)
+                .orElseThrow(() -> notOwnedException(id, "You do not have permission to edit this ad."));
+        String oldName = ad.getName();
+        ad.setName(updateDTO.getName());
+        ad.setDescription(updateDTO.getDescription());
+        ad.setImageUrl(updateDTO.getImageUrl());
+        ad.setPrice(updateDTO.getPrice());
+        ad.setCategory(category);
+        ad.setCity(updateDTO.getCity());
+        //the ad is returned with its seller
+        Hibernate.initialize(ad.getUser());
 
-        adToUpdate.setName(updateDTO.getName());
-        adToUpdate.setDescription(updateDTO.getDescription());
-        adToUpdate.setImageUrl(updateDTO.getImageUrl());
-        adToUpdate.setPrice(updateDTO.getPrice());
-        adToUpdate.setCity(updateDTO.getCity());
-        try {
-            adToUpdate.setCategory(Category.valueOf(updateDTO.getCategory().toUpperCase()));
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Invalid category: " + updateDTO.getCategory());
-        }
-
-        return adRepository.save(adToUpdate);
+        String newName = ad.getName();
+        afterCommit(() -> {
+            adDetailCache.invalidate(id);
+            adNameIndex.update(id, oldName, newName);
+            adFacets.put(id, category, updateDTO.getPrice());
+        });
+        return ad;
     }
 
     /**
      * Deletes an ad by ID
      *
      * @param id ID of the ad
-     * @param username username of the user
+     * @param userId ID of the user
      * @throws ResourceNotFoundException if the ad with the given ID is not found
      * @throws AccessDeniedException if the user is not the owner of the ad
      */
-    public void deleteAd(Long id, String username) {
-        Ad adToDelete = getAd(id);
+    @Transactional
+    public void deleteAd(Long id, Long userId) {
+        Ad ad = adRepository.findOwnedForUpdate(id, userId)
+                .orElseThrow(() -> notOwnedException(id, "You do not have permission to delete this ad."));
+        adRepository.delete(ad);
+
+        String name = ad.getName();
+        afterCommit(() -> {
+            adNameIndex.remove(id, name);
+            adFacets.remove(id);
+            adDetailCache.invalidate(id);
+        });
+    }
+
+    /**
+     * Runs the action once the current transaction is committed, never after a rollback
+     * Without a transaction the action runs at once
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Tells apart a missing ad from an ad of another user, after an owner-scoped query found no ad
+     */
+    private RuntimeException notOwnedException(Long id, String message) {
+        if (!adRepository.existsById(id)) {
+            return new ResourceNotFoundException("Ad with id " + id + " not found.");
+        }
+        return new AccessDeniedException(message);
+    }
+
+    /**
+     * Counts ads per category and per price range for the filters
+     * Category counts ignore the category filter and price ranges ignore the price filters, like a facet sidebar expects.
+     * Served from {@link AdFacets} unless filtered by name or user, which are counted in the database.
+     *
+     * @param category category to filter by
+     * @param name ad name to filter by
+     * @param minPrice minimum price to filter by
+     * @param maxPrice maximum price to filter by
+     * @param userId ID of the user to filter by
+     * @return {@link AdFacetsDTO} with the counts
+     */
+    @Transactional(readOnly = true)
+    public AdFacetsDTO getFacets(String category, String name, Double minPrice, Double maxPrice, Long userId) {
+        double[] priceBuckets = adFacets.getPriceBuckets();
+        Map<Category, Long> categoryCounts = null;
+        long[] priceCounts = null;
+
+        if ((name == null || name.isEmpty()) && userId == null) {
+            categoryCounts = adFacets.categoryCounts(minPrice, maxPrice).orElse(null);
+            if (category == null || category.isEmpty()) {
+                priceCounts = adFacets.priceHistogram(null).orElse(null);
+            } else if (Arrays.stream(Category.values()).anyMatch(c -> c.name().equalsIgnoreCase(category))) {
+                priceCounts = adFacets.priceHistogram(Category.valueOf(category.toUpperCase())).orElse(null);
+            } else {
+                priceCounts = new long[priceBuckets.length];
+            }
+        }
+
+        if (categoryCounts == null) {
+            categoryCounts = adRepository.countByCategory(buildSpecification(null, name, minPrice, maxPrice, userId, null));
+        }
+        if (priceCounts == null) {
+            priceCounts = adRepository.countByPriceBucket(buildSpecification(category, name, null, null, userId, null), priceBuckets);
+        }
+
+        Map<String, Long> categories = new LinkedHashMap<>();
+        for (Category c : Category.values()) {
+            categories.put(c.name(), categoryCounts.getOrDefault(c, 0L));
+        }
+        List<AdFacetsDTO.PriceBucket> prices = new ArrayList<>(priceBuckets.length);
+        for (int i = 0; i < priceBuckets.length; i++) {
+            Double to = i + 1 < priceBuckets.length ? priceBuckets[i + 1] : null;
+            prices.add(new AdFacetsDTO.PriceBucket(priceBuckets[i], to, priceCounts[i]));
+        }
+        return new AdFacetsDTO(categories, prices);
+    }
+
+    /**
+     * Passes every ad matching the filters to the consumer, ordered by ID
+     * Rows are read from a database cursor, so memory use does not grow with the number of ads
+     *
+     * @param category category to filter by
+     * @param name ad name to filter by
+     * @param minPrice minimum price to filter by
+     * @param maxPrice maximum price to filter by
+     * @param userId ID of the user to filter by
+     * @param consumer receives each ad with its full description
+     * @return number of exported ads
+     */
+    @Transactional(readOnly = true)
+    public long exportAds(String category, String name, Double minPrice, Double maxPrice, Long userId, Consumer<AdSummaryDTO> consumer) {
+        Specification<Ad> spec = buildSpecification(category, name, minPrice, maxPrice, userId, null);
+
+        long exported = 0;
+        try (Stream<AdSummaryDTO> ads = adRepository.streamSummaries(spec, EXPORT_SORT, exportFetchSize)) {
+            Iterator<AdSummaryDTO> iterator = ads.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                exported++;
+            }
+        }
+        return exported;
+    }
+
+    /**
+     * Builds the filter specification, narrowing the name filter with candidates from {@link AdNameIndex}
+     */
+    private Specification<Ad> buildSpecification(String category, String name, Double minPrice, Double maxPrice, Long userId, AdCursor cursor) {
+        AdSpecificationBuilder builder = new AdSpecificationBuilder()
+                .withCategory(category)
+                .withName(name)
+                .withMinPrice(minPrice)
+                .withMaxPrice(maxPrice)
+                .withUserId(userId)
+                .withCursor(cursor);
 
-        if (!adToDelete.getUser().getUsername().equals(username)) {
-            throw new AccessDeniedException("You do not have permission to delete this ad.");
+        if (name != null && !name.isEmpty()) {
+            adNameIndex.candidates(name).ifPresent(builder::withCandidates);
         }
 
-        adRepository.delete(adToDelete);
+        return builder.build();
     }
 }
\ No newline at end of file
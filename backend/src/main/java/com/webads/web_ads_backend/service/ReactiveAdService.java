@@ -0,0 +1,100 @@
+package com.webads.web_ads_backend.service;
+
+import com.webads.web_ads_backend.cache.AdDetailCache;
+import com.webads.web_ads_backend.dto.AdDTO;
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
+import com.webads.web_ads_backend.exceptions.ResourceNotFoundException;
+import com.webads.web_ads_backend.repository.AdSqlFilter;
+import com.webads.web_ads_backend.repository.ReactiveAdRepository;
+import com.webads.web_ads_backend.search.AdNameIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of the read methods of {@link AdService}, returns the same results for the same filters.
+ * Writes still go through {@link AdService}.
+ */
+@Service
+@ConditionalOnProperty(name = "ads.reactive.enabled", havingValue = "true")
+public class ReactiveAdService {
+
+    private final ReactiveAdRepository reactiveAdRepository;
+
+    private final AdNameIndex adNameIndex;
+
+    private final AdDetailCache adDetailCache;
+
+    @Value("${ads.listing.description-preview-length:200}")
+    private int descriptionPreviewLength;
+
+    @Autowired
+    public ReactiveAdService(ReactiveAdRepository reactiveAdRepository, AdNameIndex adNameIndex, AdDetailCache adDetailCache) {
+        this.reactiveAdRepository = reactiveAdRepository;
+        this.adNameIndex = adNameIndex;
+        this.adDetailCache = adDetailCache;
+    }
+
+    /**
+     * Retrieves a filtered page of ads, newest first
+     * The count query is skipped when the page size is not reached
+     *
+     * @param category category to filter by
+     * @param name ad name to filter by
+     * @param minPrice minimum price to filter by
+     * @param maxPrice maximum price to filter by
+     * @param userId ID of the user to filter by
+     * @param pageable pagination information, ads are always sorted by post date descending
+     * @return {@link Mono} with a {@link Page} of {@link AdSummaryDTO} objects
+     */
+    public Mono<Page<AdSummaryDTO>> getAllAds(String category, String name, Double minPrice, Double maxPrice, Long userId, Pageable pageable) {
+        AdSqlFilter filter = new AdSqlFilter()
+                .withCategory(category)
+                .withName(name)
+                .withMinPrice(minPrice)
+                .withMaxPrice(maxPrice)
+                .withUserId(userId);
+        if (name != null && !name.isEmpty()) {
+            adNameIndex.candidates(name).ifPresent(filter::withCandidates);
+        }
+        if (filter.matchesNothing()) {
+            return Mono.just(Page.empty(pageable));
+        }
+
+        return reactiveAdRepository.findSummaries(filter, pageable.getOffset(), pageable.getPageSize(), descriptionPreviewLength)
+                .collectList()
+                .flatMap(content -> total(filter, pageable, content)
+                        .map(total -> (Page<AdSummaryDTO>) new PageImpl<>(content, pageable, total)));
+    }
+
+    /**
+     * Finds ad details, from {@link AdDetailCache} when they are cached there and from the database otherwise
+     *
+     * @param id ID of the ad to find
+     * @return {@link Mono} with the {@link AdDTO}
+     * or a {@link ResourceNotFoundException} error if no ad with the given ID
+     */
+    public Mono<AdDTO> getAdDetails(Long id) {
+        return Mono.justOrEmpty(adDetailCache.getIfPresent(id))
+                .switchIfEmpty(Mono.defer(() -> reactiveAdRepository.findById(id)))
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Ad with id " + id + " not found.")));
+    }
+
+    /**
+     * Same rules as {@link org.springframework.data.support.PageableExecutionUtils}, the total is known without counting
+     * on a partial first page and on a partial page after the first one
+     */
+    private Mono<Long> total(AdSqlFilter filter, Pageable pageable, List<AdSummaryDTO> content) {
+        if (pageable.getPageSize() > content.size() && (pageable.getOffset() == 0 || !content.isEmpty())) {
+            return Mono.just(pageable.getOffset() + content.size());
+        }
+        return reactiveAdRepository.count(filter);
+    }
+}
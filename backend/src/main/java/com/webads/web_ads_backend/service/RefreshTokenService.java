@@ -1,75 +1,87 @@
 package com.webads.web_ads_backend.service;
 
+import com.webads.web_ads_backend.datasource.ReplicaRoutingDataSource;
 import com.webads.web_ads_backend.model.User;
 import com.webads.web_ads_backend.exceptions.TokenRefreshException;
 import com.webads.web_ads_backend.model.RefreshToken;
 import com.webads.web_ads_backend.repository.RefreshTokenRepository;
 import com.webads.web_ads_backend.repository.UserRepository;
+import com.webads.web_ads_backend.security.RefreshTokenCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
-import java.util.Optional;
-import java.util.UUID;
+import java.time.temporal.ChronoUnit;
 
 @Service
 public class RefreshTokenService {
 
+    private final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
     @Value("${jwt.refresh-expiration}")
     private Long refreshTokenDuration;
 
+    @Value("${jwt.refresh-purge.batch-size:1000}")
+    private int purgeBatchSize;
+
     private final RefreshTokenRepository refreshTokenRepository;
 
     private final UserRepository userRepository;
 
+    private final RefreshTokenCodec refreshTokenCodec;
+
     @Autowired
-    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository){
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository, RefreshTokenCodec refreshTokenCodec){
         this.refreshTokenRepository = refreshTokenRepository;
         this.userRepository = userRepository;
+        this.refreshTokenCodec = refreshTokenCodec;
     }
 
     /**
-     * Finds a refresh token by token
+     * Creates a new refresh token for a user, every sign in gets its own token
      *
-     * @param token refresh token to search for
-     * @return {@link Optional} containing the {@link RefreshToken}
+     * @param userId ID of the user
+     * @return the refresh token, only its digest is stored
      */
-    public Optional<RefreshToken> findByToken(String token) {
-        return refreshTokenRepository.findByToken(token);
-    }
+    @Transactional
+    public String createRefreshToken(Long userId) {
+        Instant expiry = Instant.now().plusMillis(refreshTokenDuration).truncatedTo(ChronoUnit.SECONDS);
+        String token = refreshTokenCodec.create(expiry);
 
-    /**
-     * Creates a new refresh token for a given user
-     *
-     * @param username username of the user
-     * @return {@link RefreshToken} object.
-     */
-    public RefreshToken createRefreshToken(String username) {
         RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUser(userRepository.getReferenceById(userId));
+        refreshToken.setTokenHash(RefreshTokenCodec.digest(token));
+        refreshToken.setExpiryDate(expiry);
 
-        refreshToken.setUser(userRepository.findByUsername(username).get());
-        refreshToken.setExpiryDate(Instant.now().plusMillis(refreshTokenDuration));
-        refreshToken.setToken(UUID.randomUUID().toString());
-
-        refreshToken = refreshTokenRepository.save(refreshToken);
-        return refreshToken;
+        refreshTokenRepository.save(refreshToken);
+        return token;
     }
 
     /**
-     * Verifies if a given refresh token has expired
+     * Verifies a refresh token
+     * Tokens with an invalid signature and expired tokens are rejected without a database lookup,
+     * signed tokens are looked up by their digest to reject tokens of users that signed out
      *
      * @param token refresh token to verify
-     * @return same refresh token if it is still valid
-     * @throws TokenRefreshException if the token has expired
+     * @return {@link User} the token was issued to
+     * @throws TokenRefreshException if the token is invalid, has expired or was deleted
      */
-    public RefreshToken verifyExpiration(RefreshToken token) {
-        if (token.getExpiryDate().compareTo(Instant.now()) < 0) {
-            refreshTokenRepository.delete(token);
-            throw new TokenRefreshException(token.getToken(), "Refresh token was expired, please make a new signin request");
+    public User verify(String token) {
+        Instant expiry = refreshTokenCodec.expiry(token)
+                .orElseThrow(() -> new TokenRefreshException(token, "Invalid refresh token"));
+        if (expiry.isBefore(Instant.now())) {
+            throw new TokenRefreshException(token, "Refresh token was expired, please make a new signin request");
         }
-        return token;
+        //not in a transaction, rejected tokens do not take a connection from the pool
+        //read from the primary, a token can be refreshed right after it was created
+        return ReplicaRoutingDataSource.onPrimary(() -> refreshTokenRepository.findByTokenHash(RefreshTokenCodec.digest(token)))
+                .map(RefreshToken::getUser)
+                .orElseThrow(() -> new TokenRefreshException(token, "Invalid refresh token"));
     }
 
     /**
@@ -79,6 +91,26 @@ public class RefreshTokenService {
      */
     @Transactional
     public void deleteByUserId(Long userId) {
-        refreshTokenRepository.deleteByUser(userRepository.findById(userId).get());
+        refreshTokenRepository.deleteByUserId(userId);
+    }
+
+    /**
+     * Deletes expired refresh tokens, batch by batch so that no transaction locks many rows
+     *
+     * @return number of deleted tokens
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh-purge.interval:1h}", initialDelayString = "${jwt.refresh-purge.interval:1h}")
+    public int purgeExpired() {
+        Instant now = Instant.now();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = refreshTokenRepository.deleteExpired(now, purgeBatchSize);
+            total += deleted;
+        } while (deleted == purgeBatchSize);
+        if (total > 0) {
+            logger.info("deleted {} expired refresh tokens", total);
+        }
+        return total;
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.webads.web_ads_backend.service;
 
+import com.webads.web_ads_backend.datasource.ReplicaRoutingDataSource;
 import com.webads.web_ads_backend.exceptions.ResourceNotFoundException;
 import com.webads.web_ads_backend.exceptions.UserAlreadyExistsException;
 import com.webads.web_ads_backend.model.User;
@@ -7,6 +8,7 @@ import com.webads.web_ads_backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.webads.web_ads_backend.dto.UserRegistrationDTO;
 
 import java.time.LocalDate;
@@ -31,6 +33,7 @@ public class UserService {
      * @return User object
      * @throws RuntimeException if user doesnt exist
      */
+    @Transactional(readOnly = true)
     public User getUser(Long id) {
         return userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User with id: " + id + " not found."));
@@ -43,6 +46,7 @@ public class UserService {
      * @return {@link User} object
      * @throws ResourceNotFoundException if user doesnt exist
      */
+    @Transactional(readOnly = true)
     public User getUserByUsername(String username) {
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User witn username: " + username + " not found"));
@@ -50,21 +54,38 @@ public class UserService {
 
 
     /**
-     * Registers a new user
-     * Hashes the password before saving
+     * Checks that a username is not taken yet, on the primary so a user registered just before is seen
      *
-     * @param registrationDTO DTO containing user registration data
-     * @return {@link User} object.
+     * @param username username to check
      * @throws UserAlreadyExistsException if user with the same username already exists
      */
-    public User register(UserRegistrationDTO registrationDTO) {
-        if (userRepository.findByUsername(registrationDTO.getUsername()).isPresent()) {
-            throw new UserAlreadyExistsException("Username '" + registrationDTO.getUsername() + "' already exists.");
+    public void checkUsernameAvailable(String username) {
+        if (ReplicaRoutingDataSource.onPrimary(() -> userRepository.findByUsername(username)).isPresent()) {
+            throw new UserAlreadyExistsException("Username '" + username + "' already exists.");
         }
+    }
 
+    /**
+     * Hashes a password, slow on purpose
+     *
+     * @param password raw password
+     * @return encoded password to store
+     */
+    public String hashPassword(String password) {
+        return passwordEncoder.encode(password);
+    }
+
+    /**
+     * Registers a new user
+     *
+     * @param registrationDTO DTO containing user registration data
+     * @param passwordHash password of the DTO hashed with {@link #hashPassword(String)}
+     * @return {@link User} object.
+     */
+    public User register(UserRegistrationDTO registrationDTO, String passwordHash) {
         User newUser = new User();
         newUser.setUsername(registrationDTO.getUsername());
-        newUser.setPassword(passwordEncoder.encode(registrationDTO.getPassword()));
+        newUser.setPassword(passwordHash);
         newUser.setPhoneNumber(registrationDTO.getPhoneNumber());
         newUser.setRegistrationDate(LocalDate.now());
 
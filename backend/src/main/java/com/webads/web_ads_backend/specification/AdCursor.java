@@ -0,0 +1,67 @@
+package com.webads.web_ads_backend.specification;
+
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the ads listing ordered by postDate desc, id desc.
+ * Clients only see the opaque encoded form.
+ */
+@Getter
+public class AdCursor {
+
+    private static final String SEPARATOR = "_";
+
+    private final LocalDateTime postDate;
+    private final Long id;
+
+    public AdCursor(LocalDateTime postDate, Long id) {
+        this.postDate = postDate;
+        this.id = id;
+    }
+
+    /**
+     * Creates a cursor pointing right after the given ad
+     *
+     * @param ad last ad of the current page
+     * @return {@link AdCursor} object
+     */
+    public static AdCursor after(AdSummaryDTO ad) {
+        return new AdCursor(ad.postDate(), ad.id());
+    }
+
+    /**
+     * Encodes the cursor into an opaque URL safe string
+     *
+     * @return encoded cursor
+     */
+    public String encode() {
+        String raw = postDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously created with {@link #encode()}
+     *
+     * @param cursor encoded cursor, null or empty for the first page
+     * @return {@link AdCursor} object or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static AdCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new AdCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
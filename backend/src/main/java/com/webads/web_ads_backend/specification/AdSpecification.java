@@ -6,6 +6,7 @@ import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class AdSpecification {
@@ -43,4 +44,26 @@ public class AdSpecification {
         return (root, query, criteriaBuilder) ->
                 criteriaBuilder.equal(root.get("user").get("id"), userId);
     }
+
+    /**
+     * Matches ads with one of the IDs or an ID above the given one
+     */
+    public static Specification<Ad> idInOrAbove(Collection<Long> ids, long above) {
+        return (root, query, criteriaBuilder) -> {
+            Predicate aboveId = criteriaBuilder.greaterThan(root.get("id"), above);
+            return ids.isEmpty() ? aboveId : criteriaBuilder.or(root.get("id").in(ids), aboveId);
+        };
+    }
+
+    /**
+     * Matches ads after the cursor in postDate desc, id desc order
+     * The leading postDate condition gives the database an index range to start from
+     */
+    public static Specification<Ad> postedBefore(AdCursor cursor) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.and(
+                criteriaBuilder.lessThanOrEqualTo(root.get("postDate"), cursor.getPostDate()),
+                criteriaBuilder.or(
+                        criteriaBuilder.lessThan(root.get("postDate"), cursor.getPostDate()),
+                        criteriaBuilder.lessThan(root.get("id"), cursor.getId())));
+    }
 }
@@ -1,6 +1,7 @@
 package com.webads.web_ads_backend.specification;
 
 import com.webads.web_ads_backend.model.Ad;
+import com.webads.web_ads_backend.search.AdNameIndex;
 import org.springframework.data.jpa.domain.Specification;
 
 public class AdSpecificationBuilder {
@@ -46,6 +47,20 @@ public class AdSpecificationBuilder {
         return this;
     }
 
+    public AdSpecificationBuilder withCandidates(AdNameIndex.Candidates candidates) {
+        if (candidates != null) {
+            specification = specification.and(AdSpecification.idInOrAbove(candidates.ids(), candidates.indexedUpTo()));
+        }
+        return this;
+    }
+
+    public AdSpecificationBuilder withCursor(AdCursor cursor) {
+        if (cursor != null) {
+            specification = specification.and(AdSpecification.postedBefore(cursor));
+        }
+        return this;
+    }
+
     public Specification<Ad> build() {
         return specification;
     }
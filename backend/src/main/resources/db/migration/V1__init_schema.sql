@@ -0,0 +1,33 @@
+-- Baseline schema, same as the one generated by hibernate ddl-auto before migrations were introduced
+
+create table users (
+    id bigint generated by default as identity,
+    username varchar(255) not null unique,
+    password varchar(255) not null,
+    phone_number varchar(255) not null,
+    registration_date date not null,
+    primary key (id)
+);
+
+create table ads (
+    id bigint generated by default as identity,
+    name varchar(255) not null,
+    description text,
+    image_url varchar(255),
+    price float(53) not null,
+    category varchar(255) not null check (category in ('CLOTHING','TOOLS','SPORTS','ACCESSORIES','FURNITURE','PETS','GAMES','BOOKS','TECHNOLOGY')),
+    city varchar(255) not null,
+    post_date timestamp(6) not null,
+    user_id bigint not null,
+    primary key (id),
+    constraint fk_ads_user foreign key (user_id) references users
+);
+
+create table refresh_tokens (
+    id bigint generated by default as identity,
+    user_id bigint unique,
+    token varchar(255) not null unique,
+    expiry_date timestamp(6) with time zone not null,
+    primary key (id),
+    constraint fk_refresh_tokens_user foreign key (user_id) references users
+);
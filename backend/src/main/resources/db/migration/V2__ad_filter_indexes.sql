@@ -0,0 +1,19 @@
+-- Indexes for the filter and sort combinations built by AdSpecificationBuilder.
+-- Every listing is ordered by post_date desc, id desc (also the keyset cursor order).
+
+-- no filters, price only filters and keyset pagination
+create index ads_post_date_id_idx on ads (post_date desc, id desc);
+
+-- category filter, with or without price, sorted by post date
+create index ads_category_post_date_id_idx on ads (category, post_date desc, id desc);
+
+-- showMineOnly listings and the foreign key used when deleting users
+create index ads_user_post_date_id_idx on ads (user_id, post_date desc, id desc);
+
+-- selective price ranges, alone or inside a category
+create index ads_price_idx on ads (price);
+create index ads_category_price_idx on ads (category, price);
+
+-- name substring filter: lower(name) like '%text%'
+create extension if not exists pg_trgm;
+create index ads_name_trgm_idx on ads using gin (lower(name) gin_trgm_ops);
@@ -0,0 +1,14 @@
+-- Ids come from sequences with increment 50, hibernate reserves a block of 50 ids per nextval (pooled optimizer)
+-- so inserts can be sent as jdbc batches. Sequences continue above the current max id.
+
+alter table users alter column id drop identity;
+create sequence users_id_seq start with 1 increment by 50 owned by users.id;
+select setval('users_id_seq', (select coalesce(max(id), 0) + 50 from users));
+
+alter table ads alter column id drop identity;
+create sequence ads_id_seq start with 1 increment by 50 owned by ads.id;
+select setval('ads_id_seq', (select coalesce(max(id), 0) + 50 from ads));
+
+alter table refresh_tokens alter column id drop identity;
+create sequence refresh_tokens_id_seq start with 1 increment by 50 owned by refresh_tokens.id;
+select setval('refresh_tokens_id_seq', (select coalesce(max(id), 0) + 50 from refresh_tokens));
@@ -0,0 +1,4 @@
+-- Version and modification time of ads, used for ETag and Last-Modified headers
+
+alter table ads add column version bigint not null default 0;
+alter table ads add column last_modified timestamp(6) with time zone not null default now();
@@ -0,0 +1,16 @@
+-- Refresh tokens are signed and stored as their SHA-256 digest, a user can have one for every signed in device.
+-- Tokens of the old format can not be verified, they are dropped and their users have to sign in again.
+
+delete from refresh_tokens;
+
+alter table refresh_tokens drop constraint refresh_tokens_user_id_key;
+alter table refresh_tokens drop column token;
+alter table refresh_tokens add column token_hash bytea not null;
+alter table refresh_tokens add constraint refresh_tokens_token_hash_key unique (token_hash);
+alter table refresh_tokens alter column user_id set not null;
+
+-- sign out deletes all tokens of a user
+create index refresh_tokens_user_id_idx on refresh_tokens (user_id);
+
+-- expired tokens are deleted in batches
+create index refresh_tokens_expiry_date_idx on refresh_tokens (expiry_date);
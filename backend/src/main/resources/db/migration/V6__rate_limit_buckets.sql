@@ -0,0 +1,56 @@
+--token buckets shared by all backend instances, see JdbcRateLimitStore
+--a bucket is the time in microseconds at which it is full again, a missing bucket is a full one
+--unlogged: the buckets do not need to survive a crash, updates do not write to the WAL
+create unlogged table rate_limit_buckets (
+    policy varchar(16) not null,
+    client_key bigint not null,
+    full_at bigint not null,
+    primary key (policy, client_key)
+);
+
+create function rate_limit_now() returns bigint language sql volatile as $$
+    select (extract(epoch from clock_timestamp()) * 1000000)::bigint
+$$;
+
+--takes up to p_tokens tokens, returns the number of tokens taken
+--or, if none is left, minus the microseconds until the next token
+create function rate_limit_take(p_policy varchar, p_key bigint, p_tokens bigint, p_interval bigint, p_burst bigint)
+returns bigint language plpgsql as $$
+declare
+    v_now bigint := rate_limit_now();
+    v_full bigint;
+    v_taken bigint;
+begin
+    --locks the row of the bucket, concurrent takes of the same bucket wait for each other
+    insert into rate_limit_buckets (policy, client_key, full_at) values (p_policy, p_key, v_now)
+    on conflict (policy, client_key) do update set full_at = greatest(rate_limit_buckets.full_at, v_now)
+    returning full_at into v_full;
+
+    v_taken := least(p_tokens, (p_burst - (v_full - v_now)) / p_interval);
+    if v_taken <= 0 then
+        return -(v_full + p_interval - v_now - p_burst);
+    end if;
+    update rate_limit_buckets set full_at = v_full + v_taken * p_interval
+    where policy = p_policy and client_key = p_key;
+    return v_taken;
+end
+$$;
+
+--puts unused tokens back, a bucket never gets fuller than full
+create function rate_limit_release(p_policy varchar, p_keys bigint[], p_tokens bigint[], p_interval bigint)
+returns void language sql as $$
+    update rate_limit_buckets b
+    set full_at = greatest(b.full_at - r.tokens * p_interval, rate_limit_now())
+    from unnest(p_keys, p_tokens) as r(client_key, tokens)
+    where b.policy = p_policy and b.client_key = r.client_key
+$$;
+
+--deletes up to p_limit buckets that are full again, returns the number of deleted buckets
+create function rate_limit_purge(p_limit int) returns int language sql as $$
+    with purged as (
+        delete from rate_limit_buckets
+        where ctid = any(array(select ctid from rate_limit_buckets where full_at < rate_limit_now() limit p_limit))
+        returning 1
+    )
+    select count(*)::int from purged
+$$;
@@ -0,0 +1,166 @@
+package com.webads.web_ads_backend.cache;
+
+import com.webads.web_ads_backend.model.Ad;
+import com.webads.web_ads_backend.model.Category;
+import com.webads.web_ads_backend.model.User;
+import com.webads.web_ads_backend.repository.AdRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AdDetailCacheTest {
+
+    @Mock
+    private AdRepository adRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AdDetailCache adDetailCache;
+
+    private ExecutorService loader;
+
+    private Ad ad;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loader = Executors.newCachedThreadPool();
+        adDetailCache = new AdDetailCache(adRepository, meterRegistry, (Executor) null, 100, Duration.ofMinutes(10), Duration.ofMinutes(1));
+
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("seller");
+        ad = new Ad();
+        ad.setId(1L);
+        ad.setName("Lamp");
+        ad.setCategory(Category.FURNITURE);
+        ad.setUser(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loader.shutdownNow();
+    }
+
+    @Test
+    void get_shouldLoadOnceAndServeFromCache() {
+        when(adRepository.findById(1L)).thenReturn(Optional.of(ad));
+
+        assertEquals("Lamp", adDetailCache.get(1L).orElseThrow().getName());
+        assertEquals("seller", adDetailCache.get(1L).orElseThrow().getSeller().getUsername());
+
+        verify(adRepository, times(1)).findById(1L);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "ads.detail").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void get_whenAdDoesNotExist() {
+        when(adRepository.findById(2L)).thenReturn(Optional.empty());
+
+        assertTrue(adDetailCache.get(2L).isEmpty());
+    }
+
+    @Test
+    void invalidate_shouldReloadOnNextGet() {
+        when(adRepository.findById(1L)).thenReturn(Optional.of(ad));
+        adDetailCache.get(1L);
+
+        ad.setName("Desk lamp");
+        adDetailCache.invalidate(1L);
+
+        assertEquals("Desk lamp", adDetailCache.get(1L).orElseThrow().getName());
+        verify(adRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void get_concurrentMisses_shouldLoadOnce() throws Exception {
+        assertConcurrentMissesLoadOnce();
+    }
+
+    @Test
+    void get_onLoaderExecutor_concurrentMisses_shouldLoadOnce() throws Exception {
+        adDetailCache = new AdDetailCache(adRepository, new SimpleMeterRegistry(), loader, 100, Duration.ofMinutes(10), Duration.ofMinutes(1));
+
+        assertConcurrentMissesLoadOnce();
+    }
+
+    @Test
+    void getIfPresent_onLoaderExecutor_shouldNotWaitForLoad() throws Exception {
+        adDetailCache = new AdDetailCache(adRepository, new SimpleMeterRegistry(), loader, 100, Duration.ofMinutes(10), Duration.ofMinutes(1));
+        CountDownLatch loading = new CountDownLatch(1);
+        when(adRepository.findById(1L)).thenAnswer(invocation -> {
+            loading.await();
+            return Optional.of(ad);
+        });
+
+        Future<?> reader = loader.submit(() -> adDetailCache.get(1L));
+        Thread.sleep(100);
+        assertTrue(adDetailCache.getIfPresent(1L).isEmpty());
+
+        loading.countDown();
+        reader.get();
+        assertEquals("Lamp", adDetailCache.getIfPresent(1L).orElseThrow().getName());
+    }
+
+    private void assertConcurrentMissesLoadOnce() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        when(adRepository.findById(1L)).thenAnswer(invocation -> {
+            loading.await();
+            return Optional.of(ad);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                readers.add(executor.submit(() -> adDetailCache.get(1L)));
+            }
+            Thread.sleep(100);
+            loading.countDown();
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(adRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void get_whenLoadFails_shouldRethrowCause() {
+        when(adRepository.findById(3L)).thenThrow(new IllegalStateException("database down"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> adDetailCache.get(3L));
+        assertEquals("database down", e.getMessage());
+    }
+
+    @Test
+    void getIfPresent_shouldNotLoad() {
+        when(adRepository.findById(1L)).thenReturn(Optional.of(ad));
+
+        assertTrue(adDetailCache.getIfPresent(1L).isEmpty());
+        verify(adRepository, never()).findById(1L);
+
+        adDetailCache.get(1L);
+        assertEquals("Lamp", adDetailCache.getIfPresent(1L).orElseThrow().getName());
+    }
+}
@@ -0,0 +1,164 @@
+package com.webads.web_ads_backend.cache;
+
+import com.webads.web_ads_backend.dto.AdDTO;
+import com.webads.web_ads_backend.model.Ad;
+import com.webads.web_ads_backend.model.Category;
+import com.webads.web_ads_backend.model.User;
+import com.webads.web_ads_backend.repository.AdRepository;
+import com.webads.web_ads_backend.repository.UserRepository;
+import com.webads.web_ads_backend.specification.AdSpecificationBuilder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Import(HibernateCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HibernateCacheConfigTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    private User user;
+
+    private Ad ad;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("cached");
+        user.setPassword("password");
+        user.setPhoneNumber("0611111111");
+        user.setRegistrationDate(LocalDate.now());
+        user = userRepository.save(user);
+
+        ad = new Ad();
+        ad.setName("Lamp");
+        ad.setPrice(15.0);
+        ad.setCategory(Category.TOOLS);
+        ad.setCity("Novi Sad");
+        ad.setPostDate(LocalDateTime.now());
+        ad.setUser(user);
+        ad = adRepository.save(ad);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        adRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void regions_shouldBeTheConfiguredOnes() {
+        assertTrue(Arrays.asList(statistics.getSecondLevelCacheRegionNames()).containsAll(
+                List.of(HibernateCacheConfig.USERS_REGION, HibernateCacheConfig.USERS_BY_USERNAME_REGION,
+                        HibernateCacheConfig.ADS_REGION, HibernateCacheConfig.AD_QUERIES_REGION)));
+    }
+
+    @Test
+    void findByUsername_repeated_shouldNotQueryDatabase() {
+        assertTrue(userRepository.findByUsername("cached").isPresent());
+        long statements = statistics.getPrepareStatementCount();
+
+        User found = userRepository.findByUsername("cached").orElseThrow();
+
+        assertEquals(user.getId(), found.getId());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getDomainDataRegionStatistics(HibernateCacheConfig.USERS_REGION).getHitCount() > 0);
+    }
+
+    @Test
+    void findByUsername_unknown_shouldBeEmpty() {
+        assertTrue(userRepository.findByUsername("missing").isEmpty());
+    }
+
+    @Test
+    void findById_repeated_shouldLoadAdAndSellerFromCache() {
+        new AdDTO(adRepository.findById(ad.getId()).orElseThrow());
+        long statements = statistics.getPrepareStatementCount();
+
+        AdDTO found = new AdDTO(adRepository.findById(ad.getId()).orElseThrow());
+
+        assertEquals("cached", found.getSeller().getUsername());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void changingAnAd_shouldOnlyEvictThatAd() {
+        Ad other = new Ad();
+        other.setName("Chair");
+        other.setPrice(20.0);
+        other.setCategory(Category.TOOLS);
+        other.setCity("Novi Sad");
+        other.setPostDate(LocalDateTime.now());
+        other.setUser(user);
+        Long otherId = adRepository.save(other).getId();
+        adRepository.findById(ad.getId()).orElseThrow();
+        adRepository.findById(otherId).orElseThrow();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                adRepository.findOwnedForUpdate(ad.getId(), user.getId()).orElseThrow().setName("Desk lamp"));
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals("Chair", adRepository.findById(otherId).orElseThrow().getName());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertEquals("Desk lamp", adRepository.findById(ad.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void countByCategory_repeated_shouldUseQueryCacheUntilAdsChange() {
+        AdSpecificationBuilder filters = new AdSpecificationBuilder().withMinPrice(10.0);
+        adRepository.countByCategory(filters.build());
+        long statements = statistics.getPrepareStatementCount();
+
+        Map<Category, Long> counts = adRepository.countByCategory(filters.build());
+
+        assertEquals(1L, counts.get(Category.TOOLS));
+        assertEquals(statements, statistics.getPrepareStatementCount());
+
+        Ad other = new Ad();
+        other.setName("Chair");
+        other.setPrice(20.0);
+        other.setCategory(Category.TOOLS);
+        other.setCity("Novi Sad");
+        other.setPostDate(LocalDateTime.now());
+        other.setUser(user);
+        adRepository.save(other);
+
+        assertEquals(2L, adRepository.countByCategory(filters.build()).get(Category.TOOLS));
+    }
+}
@@ -0,0 +1,63 @@
+package com.webads.web_ads_backend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webads.web_ads_backend.service.AdService;
+import com.webads.web_ads_backend.specification.AdCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AdControllerTest {
+
+    @Mock
+    private AdService adService;
+
+    private AdController adController;
+
+    @BeforeEach
+    void setUp() {
+        adController = new AdController(adService, new ObjectMapper(), Duration.ofMinutes(30), 2, 100);
+    }
+
+    @Test
+    void getAllAds_withTooLargeSize_shouldAskForMaxPageSize() {
+        when(adService.getAllAds(isNull(), isNull(), isNull(), isNull(), isNull(), any(Pageable.class))).thenReturn(Page.empty());
+
+        adController.getAllAds(null, null, null, null, false, 0, 1_000_000, null);
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(adService).getAllAds(isNull(), isNull(), isNull(), isNull(), isNull(), pageable.capture());
+        assertEquals(100, pageable.getValue().getPageSize());
+    }
+
+    @Test
+    void getAdsByCursor_withTooLargeSize_shouldAskForMaxPageSize() {
+        String cursor = new AdCursor(LocalDateTime.of(2024, 5, 1, 10, 0), 7L).encode();
+        when(adService.getAdsAfterCursor(isNull(), isNull(), isNull(), isNull(), isNull(), any(AdCursor.class), anyInt()))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 100), false));
+
+        adController.getAdsByCursor(null, null, null, null, false, cursor, 1_000_000, null);
+
+        verify(adService).getAdsAfterCursor(isNull(), isNull(), isNull(), isNull(), isNull(), any(AdCursor.class), eq(100));
+    }
+}
@@ -0,0 +1,40 @@
+package com.webads.web_ads_backend.controller;
+
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ETagsTest {
+
+    private final LocalDateTime postDate = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    @Test
+    void ofVersion_shouldChangeWithVersion() {
+        assertEquals("\"7-0\"", ETags.ofVersion(7L, 0));
+        assertNotEquals(ETags.ofVersion(7L, 0), ETags.ofVersion(7L, 1));
+    }
+
+    @Test
+    void ofContent_shouldBeStableForSameContent() {
+        assertEquals(ETags.ofContent(List.of(summary("Lamp", "0601")), 1L), ETags.ofContent(List.of(summary("Lamp", "0601")), 1L));
+    }
+
+    @Test
+    void ofContent_shouldChangeWhenAnyReturnedFieldChanges() {
+        String tag = ETags.ofContent(List.of(summary("Lamp", "0601")), 1L);
+
+        assertNotEquals(tag, ETags.ofContent(List.of(summary("Desk lamp", "0601")), 1L));
+        assertNotEquals(tag, ETags.ofContent(List.of(summary("Lamp", "0602")), 1L));
+        assertNotEquals(tag, ETags.ofContent(List.of(summary("Lamp", "0601")), 2L));
+        assertTrue(tag.startsWith("\"") && tag.endsWith("\""));
+    }
+
+    private AdSummaryDTO summary(String name, String phoneNumber) {
+        return new AdSummaryDTO(1L, name, "description", null, 10.0, "TOOLS", "Novi Sad", postDate,
+                new AdSummaryDTO.Seller(2L, "seller", phoneNumber, null));
+    }
+}
@@ -0,0 +1,135 @@
+package com.webads.web_ads_backend.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and a replica, each knows its own name
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private final AtomicReference<Long> currentUserId = new AtomicReference<>();
+
+    private String replicaUrl;
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readWrite;
+
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        String name = UUID.randomUUID().toString();
+        replicaUrl = "jdbc:h2:mem:replica-" + name;
+        routingDataSource = new ReplicaRoutingDataSource(
+                database("jdbc:h2:mem:primary-" + name, "primary"),
+                Map.of("replica-1", database(replicaUrl, "replica")),
+                currentUserId::get,
+                Duration.ofMinutes(1));
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @Test
+    void readOnlyTransaction_shouldUseReplica() {
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void readWriteTransaction_shouldUsePrimary() {
+        assertEquals("primary", readWrite.execute(status -> node()));
+        assertEquals("primary", node());
+    }
+
+    @Test
+    void readOnlyTransaction_afterOwnWrite_shouldUsePrimary() {
+        currentUserId.set(1L);
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("update node set writes = writes + 1"));
+
+        assertEquals("primary", readOnly.execute(status -> node()));
+
+        currentUserId.set(2L);
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void readOnlyTransaction_afterRolledBackWrite_shouldUseReplica() {
+        currentUserId.set(1L);
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("update node set writes = writes + 1");
+            status.setRollbackOnly();
+        });
+
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void onPrimary_shouldUsePrimary() {
+        assertEquals("primary", ReplicaRoutingDataSource.onPrimary(() -> readOnly.execute(status -> node())));
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void unreachableReplica_shouldFallBackToPrimaryUntilHealthCheckPasses() {
+        String name = UUID.randomUUID().toString();
+        String downUrl = "jdbc:h2:mem:down-" + name;
+        JdbcDataSource down = new JdbcDataSource();
+        //the database does not exist until it is created below, so connections fail like to a replica that is down
+        down.setURL(downUrl + ";IFEXISTS=TRUE");
+        routingDataSource = new ReplicaRoutingDataSource(
+                database("jdbc:h2:mem:primary-" + name, "primary"),
+                Map.of("replica-1", down),
+                currentUserId::get,
+                Duration.ofMinutes(1));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+
+        assertEquals("primary", readOnly.execute(status -> node()));
+        assertEquals(List.of(), routingDataSource.healthyReplicas());
+
+        routingDataSource.checkReplicas(Duration.ofSeconds(1));
+        assertEquals(List.of(), routingDataSource.healthyReplicas());
+
+        database(downUrl, "replica");
+        routingDataSource.checkReplicas(Duration.ofSeconds(1));
+        assertEquals(List.of("replica-1"), routingDataSource.healthyReplicas());
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private static DataSource database(String url, String node) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(url + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table node (name varchar(20), writes int)");
+        jdbcTemplate.update("insert into node values (?, 0)", node);
+        return dataSource;
+    }
+}
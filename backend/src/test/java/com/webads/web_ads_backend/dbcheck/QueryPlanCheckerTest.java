@@ -0,0 +1,104 @@
+package com.webads.web_ads_backend.dbcheck;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryPlanCheckerTest {
+
+    private static final QueryPlanChecker.Filter CATEGORY = QueryPlanChecker.FILTERS.get(0);
+
+    private static final QueryPlanChecker.Filter NAME = QueryPlanChecker.FILTERS.get(1);
+
+    private static final QueryPlanChecker.Filter MIN_PRICE = QueryPlanChecker.FILTERS.get(2);
+
+    @Test
+    void usesIndex_withFilterOnlyAppliedToPostDateScan_shouldFail() {
+        String plan = """
+                Limit  (cost=0.71..35.24 rows=20 width=16)
+                  ->  Nested Loop  (cost=0.71..57540.45 rows=33333 width=16)
+                        ->  Index Scan using ads_post_date_id_idx on ads a  (cost=0.42..52315.42 rows=33333 width=24)
+                              Filter: (price >= '1000000'::double precision)
+                        ->  Index Only Scan using users_pkey on users u  (cost=0.29..0.31 rows=1 width=8)
+                              Index Cond: (id = a.user_id)""";
+
+        assertFalse(QueryPlanChecker.usesIndex(plan, List.of(MIN_PRICE)));
+    }
+
+    @Test
+    void usesIndex_withIndexCondition_shouldPass() {
+        String plan = """
+                Limit  (cost=0.71..35.24 rows=20 width=16)
+                  ->  Nested Loop  (cost=0.71..57540.45 rows=33333 width=16)
+                        ->  Index Scan using ads_category_post_date_id_idx on ads a  (cost=0.42..5231.42 rows=3333 width=24)
+                              Index Cond: ((category)::text = 'TOOLS'::text)
+                              Filter: (price >= '1000000'::double precision)
+                        ->  Index Only Scan using users_pkey on users u  (cost=0.29..0.31 rows=1 width=8)
+                              Index Cond: (id = a.user_id)""";
+
+        assertTrue(QueryPlanChecker.usesIndex(plan, List.of(CATEGORY, MIN_PRICE)));
+    }
+
+    @Test
+    void usesIndex_withBitmapIndexScan_shouldPass() {
+        String plan = """
+                Limit  (cost=96.53..96.58 rows=20 width=16)
+                  ->  Sort  (cost=96.53..96.63 rows=40 width=16)
+                        ->  Nested Loop  (cost=12.31..95.47 rows=40 width=16)
+                              ->  Bitmap Heap Scan on ads a  (cost=12.02..82.51 rows=40 width=24)
+                                    Recheck Cond: (lower((name)::text) ~~ '%qzx%'::text)
+                                    ->  Bitmap Index Scan on ads_name_trgm_idx  (cost=0.00..12.01 rows=40 width=0)
+                                          Index Cond: (lower((name)::text) ~~ '%qzx%'::text)
+                              ->  Index Only Scan using users_pkey on users u  (cost=0.29..0.31 rows=1 width=8)
+                                    Index Cond: (id = a.user_id)""";
+
+        assertTrue(QueryPlanChecker.usesIndex(plan, List.of(NAME)));
+    }
+
+    @Test
+    void usesIndex_withSequentialScan_shouldFail() {
+        String plan = """
+                Limit  (cost=10000000000.00..10000000001.00 rows=20 width=16)
+                  ->  Seq Scan on ads a  (cost=10000000000.00..10000020834.00 rows=1000000 width=16)""";
+
+        assertFalse(QueryPlanChecker.usesIndex(plan, List.of()));
+    }
+
+    /**
+     * Runs the check against a PostgreSQL database migrated by flyway, an empty database is filled with generated ads
+     * first, as the planner scans the post_date index for any filter of a table without statistics. The sample
+     * category TOOLS is rare there, like the sample values of the other filters. E.g.
+     * mvn test -Dtest=QueryPlanCheckerTest -Ddb.explain-check.url=jdbc:postgresql://localhost:5432/webads
+     * -Ddb.explain-check.username=admin -Ddb.explain-check.password=secret
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "db.explain-check.url", matches = "jdbc:postgresql:.*")
+    void check_onPostgres_shouldUseAnIndexForEveryFilterCombination() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(System.getProperty("db.explain-check.url"),
+                System.getProperty("db.explain-check.username"), System.getProperty("db.explain-check.password"));
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        if (!jdbcTemplate.queryForObject("select exists (select 1 from ads)", Boolean.class)) {
+            jdbcTemplate.update("insert into users (id, username, password, phone_number, registration_date)"
+                    + " select i, 'user' || i, 'x', '000', current_date from generate_series(1, 1000) i");
+            jdbcTemplate.update("insert into ads (id, name, price, category, city, post_date, user_id)"
+                    + " select i, 'ad ' || md5(i::text), round(exp(4 + random() * 4)::numeric, 2),"
+                    + " case when i % 100 = 0 then 'TOOLS' else (array['CLOTHING','SPORTS','BOOKS'])[1 + i % 3] end,"
+                    + " 'city', localtimestamp - i * interval '1 minute', 1 + i % 1000 from generate_series(1, 200000) i");
+        }
+        jdbcTemplate.execute("analyze users");
+        jdbcTemplate.execute("analyze ads");
+        QueryPlanChecker checker = new QueryPlanChecker(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+
+        assertEquals(List.of(), checker.check());
+    }
+}
@@ -0,0 +1,120 @@
+package com.webads.web_ads_backend.dbseeder;
+
+import com.webads.web_ads_backend.model.Ad;
+import com.webads.web_ads_backend.model.Category;
+import com.webads.web_ads_backend.model.User;
+import com.webads.web_ads_backend.repository.AdRepository;
+import com.webads.web_ads_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "db.generator.chunk-size=300",
+        "db.generator.batch-size=100",
+        "db.generator.threads=4"
+})
+@ActiveProfiles("test")
+@Import({BulkDataGenerator.class, BulkDataGeneratorTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BulkDataGeneratorTest {
+
+    @Autowired
+    private BulkDataGenerator bulkDataGenerator;
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        adRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void generate_shouldInsertRequestedRows() {
+        bulkDataGenerator.generate(20, 1000);
+
+        assertEquals(20, userRepository.count());
+        assertEquals(1000, adRepository.count());
+        List<Ad> ads = adRepository.findAll();
+        assertTrue(ads.stream().allMatch(ad -> ad.getUser() != null && ad.getPrice() > 0 && ad.getName() != null));
+    }
+
+    @Test
+    void generate_whenDatabaseHasUsers_shouldKeepExistingData() {
+        bulkDataGenerator.generate(20, 1000);
+        List<String> first = adFingerprints();
+
+        bulkDataGenerator.generate(20, 1000);
+
+        assertEquals(20, userRepository.count());
+        assertEquals(first, adFingerprints());
+    }
+
+    @Test
+    void generate_shouldSkewAdsTowardsFewSellersAndCategories() {
+        bulkDataGenerator.generate(20, 1000);
+
+        Map<Long, Long> adsPerSeller = adRepository.findAll().stream()
+                .collect(Collectors.groupingBy(ad -> ad.getUser().getId(), Collectors.counting()));
+        long topSeller = adsPerSeller.values().stream().mapToLong(Long::longValue).max().orElseThrow();
+        assertTrue(topSeller > 1000 / 20 * 3, "top seller has only " + topSeller + " ads");
+
+        Map<Category, Long> adsPerCategory = adRepository.findAll().stream()
+                .collect(Collectors.groupingBy(Ad::getCategory, Collectors.counting()));
+        assertTrue(adsPerCategory.get(Category.values()[0]) > adsPerCategory.getOrDefault(Category.values()[Category.values().length - 1], 0L));
+    }
+
+    @Test
+    void generate_withSameSeed_shouldGenerateSameData() {
+        //more users and ads than fit into one chunk, so the chunks run in parallel and in any order
+        bulkDataGenerator.generate(400, 700);
+        List<String> first = adFingerprints();
+        tearDown();
+
+        bulkDataGenerator.generate(400, 700);
+        List<String> second = adFingerprints();
+
+        assertEquals(first, second);
+    }
+
+    /**
+     * Ids relative to the first generated ids, the sequences are not reset between runs
+     */
+    private List<String> adFingerprints() {
+        List<Ad> ads = adRepository.findAll();
+        long firstAdId = ads.stream().mapToLong(Ad::getId).min().orElseThrow();
+        long firstUserId = userRepository.findAll().stream().mapToLong(User::getId).min().orElseThrow();
+        Function<Ad, String> fingerprint = ad -> (ad.getId() - firstAdId) + "|" + (ad.getUser().getId() - firstUserId) + "|"
+                + ad.getName() + "|" + ad.getPrice() + "|" + ad.getCategory() + "|" + ad.getCity();
+        return ads.stream().map(fingerprint).sorted().toList();
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.webads.web_ads_backend.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdExportWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final AdSummaryDTO ad = new AdSummaryDTO(7L, "Lamp, \"vintage\"", "line one\nline two", null, 12.5, "FURNITURE",
+            "Novi Sad", LocalDateTime.of(2024, 5, 1, 10, 0), new AdSummaryDTO.Seller(3L, "seller", "0601234567", null));
+
+    @Test
+    void csv_shouldWriteHeaderAndQuoteSpecialCharacters() throws IOException {
+        String output = export(AdExportFormat.CSV);
+
+        String[] lines = output.split("\n", 2);
+        assertTrue(lines[0].startsWith("id,name,description"));
+        String row = "7,\"Lamp, \"\"vintage\"\"\",\"line one\nline two\",,12.5,FURNITURE,Novi Sad,2024-05-01T10:00,3,seller,0601234567\n";
+        assertEquals(row + row, lines[1]);
+    }
+
+    @Test
+    void ndjson_shouldWriteOneJsonObjectPerLine() throws IOException {
+        String output = export(AdExportFormat.NDJSON);
+
+        assertEquals(2, output.split("\n").length);
+        assertEquals("seller", objectMapper.readTree(output.split("\n")[1]).get("seller").get("username").asText());
+    }
+
+    @Test
+    void fromParameter_shouldRejectUnknownFormat() {
+        assertEquals(AdExportFormat.CSV, AdExportFormat.fromParameter("csv"));
+        assertThrows(IllegalArgumentException.class, () -> AdExportFormat.fromParameter("xml"));
+    }
+
+    private String export(AdExportFormat format) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        AdExportWriter writer = new AdExportWriter(format, outputStream, objectMapper);
+        writer.accept(ad);
+        writer.accept(ad);
+        writer.finish();
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+}
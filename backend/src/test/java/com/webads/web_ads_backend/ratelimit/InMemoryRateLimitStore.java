@@ -0,0 +1,57 @@
+package com.webads.web_ads_backend.ratelimit;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Stand-in for the rate_limit_* functions of the database, shared by the limiters of several instances in tests
+ */
+class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final Map<String, Long> fullAt = new HashMap<>();
+
+    private final LongSupplier clock;
+
+    private boolean available = true;
+
+    InMemoryRateLimitStore(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized long take(RateLimitPolicy policy, long key, long tokens, long intervalMicros, long burstMicros) {
+        checkAvailable();
+        long now = clock.getAsLong();
+        long full = Math.max(fullAt.getOrDefault(policy + ":" + key, now), now);
+        long taken = Math.min(tokens, (burstMicros - (full - now)) / intervalMicros);
+        if (taken <= 0) {
+            fullAt.put(policy + ":" + key, full);
+            return -(full + intervalMicros - now - burstMicros);
+        }
+        fullAt.put(policy + ":" + key, full + taken * intervalMicros);
+        return taken;
+    }
+
+    @Override
+    public synchronized void release(RateLimitPolicy policy, long[] keys, long[] tokens, long intervalMicros) {
+        checkAvailable();
+        long now = clock.getAsLong();
+        for (int i = 0; i < keys.length; i++) {
+            long released = tokens[i] * intervalMicros;
+            fullAt.computeIfPresent(policy + ":" + keys[i], (key, full) -> Math.max(full - released, now));
+        }
+    }
+
+    synchronized void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    private void checkAvailable() {
+        if (!available) {
+            throw new DataAccessResourceFailureException("store is down");
+        }
+    }
+}
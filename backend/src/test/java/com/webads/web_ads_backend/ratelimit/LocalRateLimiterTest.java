@@ -0,0 +1,119 @@
+package com.webads.web_ads_backend.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(1);
+
+    @Test
+    void tryAcquire_shouldAllowCapacityThenReject() {
+        LocalRateLimiter limiter = new LocalRateLimiter(5, Duration.ofMinutes(1), 1024, clock::get);
+        long key = RateLimiter.hash("10.0.0.1");
+
+        for (int remaining = 4; remaining >= 0; remaining--) {
+            assertEquals(remaining, limiter.tryAcquire(key));
+        }
+        //one token is back after 12 seconds
+        assertEquals(-TimeUnit.SECONDS.toMicros(12), limiter.tryAcquire(key));
+
+        clock.addAndGet(TimeUnit.SECONDS.toMicros(12));
+        assertEquals(0, limiter.tryAcquire(key));
+        assertTrue(limiter.tryAcquire(key) < 0);
+
+        clock.addAndGet(TimeUnit.MINUTES.toMicros(5));
+        assertEquals(4, limiter.tryAcquire(key));
+    }
+
+    @Test
+    void tryAcquire_shouldKeepKeysApart() {
+        LocalRateLimiter limiter = new LocalRateLimiter(1, Duration.ofMinutes(1), 1024, clock::get);
+
+        assertEquals(0, limiter.tryAcquire(RateLimiter.hash("10.0.0.1")));
+        assertTrue(limiter.tryAcquire(RateLimiter.hash("10.0.0.1")) < 0);
+        assertEquals(0, limiter.tryAcquire(RateLimiter.hash("10.0.0.2")));
+        assertEquals(0, limiter.tryAcquire(RateLimiter.hash(1L)));
+        assertEquals(0, limiter.sharedSlotCount());
+    }
+
+    @Test
+    void tryAcquire_whenTableIsFull_shouldNeverAllowMoreThanCapacity() {
+        //one group of 4 slots for 1000 clients
+        LocalRateLimiter limiter = new LocalRateLimiter(3, Duration.ofMinutes(1), 4, clock::get);
+        assertEquals(4, limiter.maxKeys());
+
+        long allowed = 0;
+        for (int client = 0; client < 1000; client++) {
+            for (int request = 0; request < 5; request++) {
+                if (limiter.tryAcquire(RateLimiter.hash("client-" + client)) >= 0) {
+                    allowed++;
+                }
+            }
+        }
+
+        //4 slots with 3 tokens each, no evicted client starts over with a full bucket
+        assertEquals(12, allowed);
+        assertTrue(limiter.sharedSlotCount() > 0);
+    }
+
+    @Test
+    void tryAcquire_shouldReuseSlotsOfRefilledBuckets() {
+        LocalRateLimiter limiter = new LocalRateLimiter(3, Duration.ofMinutes(1), 4, clock::get);
+
+        for (int client = 0; client < 100; client++) {
+            assertEquals(2, limiter.tryAcquire(RateLimiter.hash("client-" + client)));
+            clock.addAndGet(TimeUnit.SECONDS.toMicros(20));
+        }
+
+        assertEquals(0, limiter.sharedSlotCount());
+    }
+
+    @Test
+    void tryAcquire_fromManyThreads_shouldAllowCapacityOnly() throws Exception {
+        LocalRateLimiter limiter = new LocalRateLimiter(1000, Duration.ofHours(1), 1024);
+        long key = RateLimiter.hash(42L);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int allowed = 0;
+                for (int i = 0; i < 1000; i++) {
+                    if (limiter.tryAcquire(key) >= 0) {
+                        allowed++;
+                    }
+                }
+                return allowed;
+            }));
+        }
+        start.countDown();
+
+        int allowed = 0;
+        for (Future<Integer> result : results) {
+            allowed += result.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        //a token is refilled every 3.6 seconds
+        assertTrue(allowed >= 1000 && allowed <= 1002, "allowed " + allowed);
+    }
+
+    @Test
+    void constructor_whenRateIsTooHigh_shouldFail() {
+        assertThrows(IllegalArgumentException.class, () -> new LocalRateLimiter(2_000_000, Duration.ofSeconds(1), 1024));
+        assertThrows(IllegalArgumentException.class, () -> new LocalRateLimiter(0, Duration.ofSeconds(1), 1024));
+    }
+}
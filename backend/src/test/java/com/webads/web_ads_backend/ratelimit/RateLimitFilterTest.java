@@ -0,0 +1,101 @@
+package com.webads.web_ads_backend.ratelimit;
+
+import com.webads.web_ads_backend.security.AuthenticatedUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RateLimitFilter rateLimitFilter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        RateLimiters rateLimiters = new RateLimiters(meterRegistry, Optional.empty(), true, 1024, 0.1, 2, Duration.ofSeconds(1),
+                1, Duration.ofMinutes(1),
+                2, Duration.ofMinutes(1),
+                1, Duration.ofMinutes(1));
+        rateLimitFilter = new RateLimitFilter(rateLimiters, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void policyOf_shouldRouteByPathAndMethod() {
+        assertEquals(RateLimitPolicy.AUTH, RateLimitPolicy.of(new MockHttpServletRequest("POST", "/api/auth/login")));
+        assertEquals(RateLimitPolicy.READ, RateLimitPolicy.of(new MockHttpServletRequest("GET", "/api/ads")));
+        assertEquals(RateLimitPolicy.READ, RateLimitPolicy.of(new MockHttpServletRequest("GET", "/api/rx/ads/1")));
+        assertEquals(RateLimitPolicy.WRITE, RateLimitPolicy.of(new MockHttpServletRequest("POST", "/api/ads")));
+        assertEquals(RateLimitPolicy.WRITE, RateLimitPolicy.of(new MockHttpServletRequest("DELETE", "/api/ads/1")));
+        assertNull(RateLimitPolicy.of(new MockHttpServletRequest("GET", "/actuator/health")));
+    }
+
+    @Test
+    void doFilter_whenLimitIsReached_shouldRejectWith429() throws Exception {
+        assertEquals(200, send("GET", "/api/ads", "10.0.0.1").getStatus());
+        MockHttpServletResponse last = send("GET", "/api/ads/7", "10.0.0.1");
+        assertEquals(200, last.getStatus());
+        assertEquals("0", last.getHeader("X-Rate-Limit-Remaining"));
+
+        MockHttpServletResponse rejected = send("GET", "/api/ads", "10.0.0.1");
+
+        assertEquals(429, rejected.getStatus());
+        assertEquals("30", rejected.getHeader("X-Rate-Limit-Retry-After-Seconds"));
+        assertTrue(rejected.getContentAsString().contains("Too many requests"));
+        assertEquals(1.0, meterRegistry.get("rate.limit.rejected").tag("policy", "read").counter().count());
+        //other policies and addresses have their own buckets
+        assertEquals(200, send("POST", "/api/ads", "10.0.0.1").getStatus());
+        assertEquals(200, send("GET", "/api/ads", "10.0.0.2").getStatus());
+        assertEquals(200, send("GET", "/actuator/health", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void doFilter_whenSignedIn_shouldLimitByUserId() throws Exception {
+        signIn(7L);
+        send("POST", "/api/ads", "10.0.0.1");
+
+        assertEquals(429, send("POST", "/api/ads", "10.0.0.2").getStatus());
+        signIn(8L);
+        assertEquals(200, send("POST", "/api/ads", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void doFilter_authRequests_shouldLimitByAddress() throws Exception {
+        signIn(7L);
+        send("POST", "/api/auth/refresh", "10.0.0.1");
+        signIn(8L);
+
+        assertEquals(429, send("POST", "/api/auth/refresh", "10.0.0.1").getStatus());
+    }
+
+    private MockHttpServletResponse send(String method, String uri, String address) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(address);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static void signIn(Long userId) {
+        AuthenticatedUser user = new AuthenticatedUser(userId, "user" + userId);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+}
@@ -0,0 +1,163 @@
+package com.webads.web_ads_backend.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two limiters on one store stand in for two instances of the backend
+ */
+class SharedRateLimiterTest {
+
+    private static final long KEY = RateLimiter.hash("10.0.0.1");
+
+    private final AtomicLong clock = new AtomicLong(1);
+
+    private InMemoryRateLimitStore store;
+
+    private SharedRateLimiter first;
+
+    private SharedRateLimiter second;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryRateLimitStore(clock::get);
+        first = limiter();
+        second = limiter();
+    }
+
+    @Test
+    void tryAcquire_shouldHoldLimitAcrossInstances() {
+        int allowed = 0;
+        for (int i = 0; i < 100; i++) {
+            if (first.tryAcquire(KEY) >= 0) {
+                allowed++;
+            }
+            if (second.tryAcquire(KEY) >= 0) {
+                allowed++;
+            }
+        }
+
+        assertEquals(100, allowed);
+    }
+
+    @Test
+    void tryAcquire_shouldServeMostRequestsFromLease() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(first.tryAcquire(KEY) >= 0);
+        }
+
+        //leases of 10 tokens
+        assertEquals(10, first.storeCallCount());
+    }
+
+    @Test
+    void tryAcquire_whenOutOfTokens_shouldNotAskStoreUntilNextToken() {
+        for (int i = 0; i < 100; i++) {
+            first.tryAcquire(KEY);
+        }
+        long calls = first.storeCallCount();
+
+        //one token every 600 milliseconds
+        assertEquals(-TimeUnit.MILLISECONDS.toMicros(600), first.tryAcquire(KEY));
+        first.tryAcquire(KEY);
+        assertEquals(calls + 1, first.storeCallCount());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toMicros(600));
+        assertEquals(0, first.tryAcquire(KEY));
+    }
+
+    @Test
+    void flush_shouldPutUnusedTokensBack() {
+        assertEquals(9, first.tryAcquire(KEY));
+        //the first instance holds 9 unused tokens
+        for (int i = 0; i < 90; i++) {
+            assertTrue(second.tryAcquire(KEY) >= 0);
+        }
+        assertTrue(second.tryAcquire(KEY) < 0);
+
+        clock.addAndGet(TimeUnit.SECONDS.toMicros(1));
+        first.flush();
+
+        //one more token was refilled in the second
+        int allowed = 0;
+        while (second.tryAcquire(KEY) >= 0) {
+            allowed++;
+        }
+        assertEquals(10, allowed);
+    }
+
+    @Test
+    void tryAcquire_whenStoreIsDown_shouldLimitPerInstance() {
+        store.setAvailable(false);
+
+        int allowed = 0;
+        for (int i = 0; i < 200; i++) {
+            if (first.tryAcquire(KEY) >= 0) {
+                allowed++;
+            }
+        }
+
+        assertEquals(100, allowed);
+        //retried after a second
+        assertEquals(1, first.storeErrorCount());
+    }
+
+    @Test
+    void tryAcquire_withSmallCapacity_shouldTakeMinimumLease() {
+        SharedRateLimiter small = new SharedRateLimiter(RateLimitPolicy.AUTH, store, 5, Duration.ofMinutes(1), 1024, 0.1,
+                2, Duration.ofSeconds(1), clock::get);
+
+        int allowed = 0;
+        for (int i = 0; i < 10; i++) {
+            if (small.tryAcquire(KEY) >= 0) {
+                allowed++;
+            }
+        }
+
+        assertEquals(5, allowed);
+        //leases of 2, 2 and the 1 token left, then one call that finds the bucket empty
+        assertEquals(4, small.storeCallCount());
+    }
+
+    @Test
+    void tryAcquire_shouldNotHoldTheLeaseWhileCallingTheStore() throws Exception {
+        AtomicBoolean nested = new AtomicBoolean();
+        AtomicReference<SharedRateLimiter> limiter = new AtomicReference<>();
+        RateLimitStore slowStore = new RateLimitStore() {
+            @Override
+            public long take(RateLimitPolicy policy, long key, long tokens, long intervalMicros, long burstMicros) {
+                if (nested.compareAndSet(false, true)) {
+                    //another request of the same client while this one waits for the store
+                    CompletableFuture<Long> other = CompletableFuture.supplyAsync(() -> limiter.get().tryAcquire(KEY));
+                    assertDoesNotThrow(() -> other.get(5, TimeUnit.SECONDS));
+                }
+                return store.take(policy, key, tokens, intervalMicros, burstMicros);
+            }
+
+            @Override
+            public void release(RateLimitPolicy policy, long[] keys, long[] tokens, long intervalMicros) {
+                store.release(policy, keys, tokens, intervalMicros);
+            }
+        };
+        limiter.set(new SharedRateLimiter(RateLimitPolicy.READ, slowStore, 100, Duration.ofMinutes(1), 1024, 0.1,
+                2, Duration.ofSeconds(1), clock::get));
+
+        //the other request took a lease of its own, both are added up
+        assertEquals(18, limiter.get().tryAcquire(KEY));
+        assertEquals(2, limiter.get().storeCallCount());
+    }
+
+    private SharedRateLimiter limiter() {
+        return new SharedRateLimiter(RateLimitPolicy.READ, store, 100, Duration.ofMinutes(1), 1024, 0.1,
+                2, Duration.ofSeconds(1), clock::get);
+    }
+}
@@ -0,0 +1,236 @@
+package com.webads.web_ads_backend.repository;
+
+import com.webads.web_ads_backend.dto.AdDTO;
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
+import com.webads.web_ads_backend.model.Ad;
+import com.webads.web_ads_backend.model.Category;
+import com.webads.web_ads_backend.model.User;
+import com.webads.web_ads_backend.search.AdNameIndex;
+import com.webads.web_ads_backend.specification.AdSpecificationBuilder;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class AdRepositoryTest {
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setUsername("seller" + i);
+            user.setPassword("password");
+            user.setPhoneNumber("06" + i);
+            user.setRegistrationDate(LocalDate.now());
+            users.add(userRepository.save(user));
+        }
+        for (int i = 0; i < 30; i++) {
+            Ad ad = new Ad();
+            ad.setName("Ad " + i);
+            ad.setPrice(10.0 * i);
+            ad.setCategory(Category.TOOLS);
+            ad.setCity("Novi Sad");
+            ad.setDescription("x".repeat(i * 10));
+            ad.setPostDate(LocalDateTime.now().minusMinutes(i));
+            ad.setUser(users.get(i % users.size()));
+            adRepository.save(ad);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAll_shouldLoadPageWithSellersInTwoStatements() {
+        Page<Ad> page = adRepository.findAll(new AdSpecificationBuilder().withCategory("tools").build(),
+                PageRequest.of(0, 20, Sort.by("postDate").descending()));
+        List<AdDTO> ads = page.map(AdDTO::new).getContent();
+
+        assertEquals(20, ads.size());
+        assertEquals(30, page.getTotalElements());
+        assertNotNull(ads.get(0).getSeller().getUsername());
+        //one select for the page with sellers joined and one count
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findById_shouldLoadSellerInOneStatement() {
+        Long id = adRepository.findIndexViewsAfter(0L, PageRequest.of(0, 1)).get(0).getId();
+        statistics.clear();
+
+        AdDTO ad = new AdDTO(adRepository.findById(id).orElseThrow());
+
+        assertNotNull(ad.getSeller().getUsername());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findBy_withUserProjection_shouldLoadSlicesWithSellersInOneStatement() {
+        List<Ad> ads = adRepository.findBy(new AdSpecificationBuilder().build(),
+                query -> query.project("user").sortBy(Sort.by("postDate").descending()).limit(21).all());
+        ads.forEach(AdDTO::new);
+
+        assertEquals(21, ads.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findSummaries_shouldSelectPreviewsWithoutManagedEntities() {
+        Page<AdSummaryDTO> page = adRepository.findSummaries(new AdSpecificationBuilder().withMaxPrice(100.0).build(),
+                PageRequest.of(0, 20, Sort.by("postDate").descending()), 50);
+
+        assertEquals(11, page.getTotalElements());
+        assertEquals("seller0", page.getContent().get(0).seller().username());
+        assertEquals("x".repeat(50) + "...", page.getContent().get(10).description());
+        assertEquals("x".repeat(50), page.getContent().get(5).description());
+        assertEquals(0, statistics.getEntityLoadCount());
+        //page not full, so no count query
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findSummaries_withLimit_shouldNotCount() {
+        List<AdSummaryDTO> ads = adRepository.findSummaries(new AdSpecificationBuilder().build(),
+                Sort.by("postDate").descending().and(Sort.by("id").descending()), 21, 50);
+
+        assertEquals(21, ads.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void saveAll_shouldBatchInserts() {
+        User seller = userRepository.findAll().get(0);
+        List<Ad> ads = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Ad ad = new Ad();
+            ad.setName("Batch ad " + i);
+            ad.setPrice(1.0);
+            ad.setCategory(Category.BOOKS);
+            ad.setCity("Novi Sad");
+            ad.setPostDate(LocalDateTime.now());
+            ad.setUser(seller);
+            ads.add(ad);
+        }
+        statistics.clear();
+
+        adRepository.saveAll(ads);
+        entityManager.flush();
+
+        assertEquals(120, statistics.getEntityInsertCount());
+        //a few sequence calls and one statement per batch of 50 instead of one per ad
+        assertTrue(statistics.getPrepareStatementCount() <= 6, "statements: " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @Transactional(readOnly = true)
+    void streamSummaries_shouldStreamFullDescriptionsOrderedById() {
+        List<AdSummaryDTO> ads;
+        try (Stream<AdSummaryDTO> stream = adRepository.streamSummaries(new AdSpecificationBuilder().withMinPrice(200.0).build(),
+                Sort.by("id"), 5)) {
+            ads = stream.toList();
+        }
+
+        assertEquals(10, ads.size());
+        assertEquals("x".repeat(290), ads.get(ads.size() - 1).description());
+        assertTrue(ads.get(0).id() < ads.get(1).id());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void countByCategory_shouldGroupMatchingAds() {
+        Map<Category, Long> counts = adRepository.countByCategory(new AdSpecificationBuilder().withMaxPrice(45.0).build());
+
+        assertEquals(Map.of(Category.TOOLS, 5L), counts);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findSummaries_withNameCandidates_shouldAlsoMatchAdsAboveTheIndex() {
+        List<Long> ids = adRepository.findAll(Sort.by("id")).stream().map(Ad::getId).toList();
+        AdNameIndex.Candidates candidates = new AdNameIndex.Candidates(Set.of(ids.get(0)), ids.get(27));
+
+        List<AdSummaryDTO> ads = adRepository.findSummaries(new AdSpecificationBuilder().withCandidates(candidates).build(),
+                Sort.by("id"), 10, 10);
+
+        assertEquals(List.of(ids.get(0), ids.get(28), ids.get(29)), ads.stream().map(AdSummaryDTO::id).toList());
+    }
+
+    @Test
+    void countByPriceBucket_shouldCountEveryBucketInOneQuery() {
+        long[] counts = adRepository.countByPriceBucket(new AdSpecificationBuilder().withCategory("tools").build(),
+                new double[]{0, 100, 250});
+
+        //prices are 0, 10, ..., 290
+        assertArrayEquals(new long[]{10, 15, 5}, counts);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findOwnedForUpdate_shouldOnlyFindAdsOfTheUser() {
+        Ad ad = adRepository.findAll().get(0);
+        Long ownerId = ad.getUser().getId();
+        entityManager.clear();
+        statistics.clear();
+
+        assertTrue(adRepository.findOwnedForUpdate(ad.getId(), ownerId + 1000).isEmpty());
+        Ad owned = adRepository.findOwnedForUpdate(ad.getId(), ownerId).orElseThrow();
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        owned.setName("Renamed");
+        entityManager.flush();
+        entityManager.clear();
+
+        Ad updated = adRepository.findById(ad.getId()).orElseThrow();
+        assertEquals("Renamed", updated.getName());
+        assertEquals(ad.getVersion() + 1, updated.getVersion());
+    }
+
+    @Test
+    void save_withStaleVersion_shouldFail() {
+        Ad stale = adRepository.findAll().get(0);
+        entityManager.detach(stale);
+        adRepository.findOwnedForUpdate(stale.getId(), stale.getUser().getId()).orElseThrow().setName("Renamed");
+        entityManager.flush();
+
+        stale.setName("Overwrite");
+        assertThrows(OptimisticLockingFailureException.class, () -> {
+            adRepository.save(stale);
+            entityManager.flush();
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package com.webads.web_ads_backend.repository;
+
+import com.webads.web_ads_backend.search.AdNameIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdSqlFilterTest {
+
+    @Test
+    void where_withoutFilters_shouldBeEmpty() {
+        AdSqlFilter filter = new AdSqlFilter()
+                .withCategory(null)
+                .withName("")
+                .withMinPrice(null)
+                .withMaxPrice(null)
+                .withUserId(null)
+                .withCandidates(null);
+
+        assertEquals("", filter.where());
+        assertTrue(filter.getParameters().isEmpty());
+        assertFalse(filter.matchesNothing());
+    }
+
+    @Test
+    void where_withAllFilters() {
+        AdSqlFilter filter = new AdSqlFilter()
+                .withCategory("tools")
+                .withName("Lamp")
+                .withMinPrice(10.0)
+                .withMaxPrice(20.0)
+                .withUserId(3L)
+                .withCandidates(new AdNameIndex.Candidates(Set.of(1L, 2L), 100L));
+
+        assertEquals(" where a.category = :category and lower(a.name) like :name and a.price >= :minPrice"
+                + " and a.price <= :maxPrice and a.user_id = :userId and (a.id = any(:ids) or a.id > :indexedUpTo)", filter.where());
+        assertEquals("TOOLS", filter.getParameters().get("category"));
+        assertEquals("%lamp%", filter.getParameters().get("name"));
+        assertEquals(Set.of(1L, 2L), Set.of((Long[]) filter.getParameters().get("ids")));
+        assertEquals(100L, filter.getParameters().get("indexedUpTo"));
+        assertFalse(filter.matchesNothing());
+    }
+
+    @Test
+    void withCategory_whenCategoryIsInvalid_shouldMatchNothing() {
+        AdSqlFilter filter = new AdSqlFilter().withCategory("nope");
+
+        assertTrue(filter.matchesNothing());
+    }
+
+    @Test
+    void withCandidates_whenEmpty_shouldOnlyMatchAdsAboveTheIndex() {
+        AdSqlFilter filter = new AdSqlFilter().withCandidates(new AdNameIndex.Candidates(Set.of(), 100L));
+
+        assertEquals(" where a.id > :indexedUpTo", filter.where());
+        assertFalse(filter.matchesNothing());
+    }
+
+    @Test
+    void toR2dbcUrl_shouldDropJdbcParameters() {
+        assertEquals("r2dbc:postgresql://db:5432/webads",
+                ReactiveDatabaseConfig.toR2dbcUrl("jdbc:postgresql://db:5432/webads?reWriteBatchedInserts=true"));
+        assertThrows(IllegalArgumentException.class, () -> ReactiveDatabaseConfig.toR2dbcUrl("postgresql://db/webads"));
+    }
+}
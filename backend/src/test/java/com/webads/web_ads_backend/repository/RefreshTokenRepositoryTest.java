@@ -0,0 +1,77 @@
+package com.webads.web_ads_backend.repository;
+
+import com.webads.web_ads_backend.model.RefreshToken;
+import com.webads.web_ads_backend.model.User;
+import com.webads.web_ads_backend.security.RefreshTokenCodec;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class RefreshTokenRepositoryTest {
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("seller");
+        user.setPassword("password");
+        user.setPhoneNumber("06");
+        user.setRegistrationDate(LocalDate.now());
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void save_shouldKeepOneTokenPerSignIn() {
+        save("first", Instant.now().plusSeconds(60));
+        save("second", Instant.now().plusSeconds(60));
+        entityManager.flush();
+        entityManager.clear();
+
+        RefreshToken found = refreshTokenRepository.findByTokenHash(RefreshTokenCodec.digest("second")).orElseThrow();
+        assertEquals("seller", found.getUser().getUsername());
+        assertEquals(2, refreshTokenRepository.count());
+    }
+
+    @Test
+    void deleteExpired_shouldDeleteUpToLimit() {
+        for (int i = 0; i < 5; i++) {
+            save("expired" + i, Instant.now().minusSeconds(60));
+        }
+        save("valid", Instant.now().plusSeconds(60));
+        entityManager.flush();
+
+        assertEquals(3, refreshTokenRepository.deleteExpired(Instant.now(), 3));
+        assertEquals(2, refreshTokenRepository.deleteExpired(Instant.now(), 3));
+        assertEquals(0, refreshTokenRepository.deleteExpired(Instant.now(), 3));
+        entityManager.clear();
+        assertTrue(refreshTokenRepository.findByTokenHash(RefreshTokenCodec.digest("valid")).isPresent());
+    }
+
+    private void save(String token, Instant expiry) {
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUser(user);
+        refreshToken.setTokenHash(RefreshTokenCodec.digest(token));
+        refreshToken.setExpiryDate(expiry);
+        refreshTokenRepository.save(refreshToken);
+    }
+}
@@ -0,0 +1,164 @@
+package com.webads.web_ads_backend.search;
+
+import com.webads.web_ads_backend.model.Category;
+import com.webads.web_ads_backend.repository.AdIndexView;
+import com.webads.web_ads_backend.repository.AdRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AdFacetsTest {
+
+    @Mock
+    private AdRepository adRepository;
+
+    @InjectMocks
+    private AdFacets adFacets;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(adFacets, "enabled", true);
+        ReflectionTestUtils.setField(adFacets, "priceBuckets", new double[]{0, 10, 100});
+        ReflectionTestUtils.setField(adFacets, "rebuildBatchSize", 2);
+        when(adRepository.findIndexViewsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                view(1L, Category.TOOLS, 5.0),
+                view(2L, Category.TOOLS, 50.0)));
+        when(adRepository.findIndexViewsAfter(eq(2L), any(Pageable.class))).thenReturn(List.of(
+                view(3L, Category.BOOKS, 10.0)));
+        adFacets.rebuild();
+    }
+
+    @Test
+    void rebuild_shouldLoadAllBatches() {
+        Map<Category, Long> counts = adFacets.categoryCounts(null, null).orElseThrow();
+
+        assertEquals(2L, counts.get(Category.TOOLS));
+        assertEquals(1L, counts.get(Category.BOOKS));
+        assertEquals(0L, counts.get(Category.PETS));
+        assertArrayEquals(new long[]{1, 2, 0}, adFacets.priceHistogram(null).orElseThrow());
+    }
+
+    @Test
+    void rebuild_shouldKeepChangesMadeWhileReading() {
+        when(adRepository.findIndexViewsAfter(eq(0L), any(Pageable.class))).thenAnswer(invocation -> {
+            adFacets.put(4L, Category.PETS, 20.0);
+            adFacets.remove(1L);
+            return List.of(view(1L, Category.TOOLS, 5.0), view(2L, Category.TOOLS, 50.0));
+        });
+
+        adFacets.rebuild();
+
+        Map<Category, Long> counts = adFacets.categoryCounts(null, null).orElseThrow();
+        assertEquals(1L, counts.get(Category.TOOLS));
+        assertEquals(1L, counts.get(Category.BOOKS));
+        assertEquals(1L, counts.get(Category.PETS));
+    }
+
+    @Test
+    void categoryCounts_shouldApplyInclusivePriceRange() {
+        Map<Category, Long> counts = adFacets.categoryCounts(10.0, 50.0).orElseThrow();
+
+        assertEquals(1L, counts.get(Category.TOOLS));
+        assertEquals(1L, counts.get(Category.BOOKS));
+    }
+
+    @Test
+    void put_whenAdExists_shouldMoveItToNewCategoryAndPrice() {
+        adFacets.put(1L, Category.BOOKS, 500.0);
+
+        assertEquals(1L, adFacets.categoryCounts(null, null).orElseThrow().get(Category.TOOLS));
+        assertArrayEquals(new long[]{0, 1, 1}, adFacets.priceHistogram(Category.BOOKS).orElseThrow());
+    }
+
+    @Test
+    void remove_shouldDropAd() {
+        adFacets.remove(2L);
+        adFacets.remove(42L);
+
+        assertArrayEquals(new long[]{1, 0, 0}, adFacets.priceHistogram(Category.TOOLS).orElseThrow());
+    }
+
+    @Test
+    void whenNotBuilt_shouldReturnEmpty() {
+        AdFacets notBuilt = new AdFacets(adRepository);
+        ReflectionTestUtils.setField(notBuilt, "enabled", true);
+
+        assertTrue(notBuilt.categoryCounts(null, null).isEmpty());
+        assertTrue(notBuilt.priceHistogram(null).isEmpty());
+    }
+
+    @Test
+    void manyWrites_shouldMatchBruteForceCounts() {
+        Random random = new Random(7);
+        Map<Long, Double> prices = new HashMap<>();
+        Map<Long, Category> categories = new HashMap<>();
+        prices.put(1L, 5.0);
+        prices.put(2L, 50.0);
+        prices.put(3L, 10.0);
+        categories.put(1L, Category.TOOLS);
+        categories.put(2L, Category.TOOLS);
+        categories.put(3L, Category.BOOKS);
+
+        for (int i = 0; i < 20000; i++) {
+            long id = 1 + random.nextInt(5000);
+            if (random.nextInt(4) == 0) {
+                adFacets.remove(id);
+                prices.remove(id);
+                categories.remove(id);
+            } else {
+                Category category = Category.values()[random.nextInt(Category.values().length)];
+                double price = random.nextInt(20000) / 100.0;
+                adFacets.put(id, category, price);
+                prices.put(id, price);
+                categories.put(id, category);
+            }
+        }
+
+        Map<Category, Long> counts = adFacets.categoryCounts(20.0, 150.0).orElseThrow();
+        for (Category category : Category.values()) {
+            long expected = prices.keySet().stream()
+                    .filter(id -> categories.get(id) == category && prices.get(id) >= 20.0 && prices.get(id) <= 150.0)
+                    .count();
+            assertEquals(expected, counts.get(category), category.name());
+        }
+        long[] histogram = adFacets.priceHistogram(null).orElseThrow();
+        assertEquals(prices.values().stream().filter(price -> price >= 100).count(), histogram[2]);
+        assertEquals(prices.size(), histogram[0] + histogram[1] + histogram[2]);
+    }
+
+    private static AdIndexView view(Long id, Category category, Double price) {
+        return new AdIndexView() {
+            public Long getId() {
+                return id;
+            }
+
+            public String getName() {
+                return "Ad " + id;
+            }
+
+            public Category getCategory() {
+                return category;
+            }
+
+            public Double getPrice() {
+                return price;
+            }
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package com.webads.web_ads_backend.search;
+
+import com.webads.web_ads_backend.model.Category;
+import com.webads.web_ads_backend.repository.AdIndexView;
+import com.webads.web_ads_backend.repository.AdRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AdNameIndexTest {
+
+    @Mock
+    private AdRepository adRepository;
+
+    @InjectMocks
+    private AdNameIndex adNameIndex;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(adNameIndex, "enabled", true);
+        ReflectionTestUtils.setField(adNameIndex, "maxCandidates", 100);
+        ReflectionTestUtils.setField(adNameIndex, "rebuildBatchSize", 100);
+        ReflectionTestUtils.setField(adNameIndex, "idMargin", 10L);
+        when(adRepository.findIndexViewsAfter(anyLong(), any(Pageable.class))).thenReturn(Collections.emptyList());
+        adNameIndex.rebuild();
+
+        adNameIndex.add(1L, "Red Hammer");
+        adNameIndex.add(2L, "Claw hammer");
+        adNameIndex.add(3L, "Garden chair");
+    }
+
+    @Test
+    void candidates_shouldMatchSubstringIgnoringCase() {
+        assertEquals(Optional.of(Set.of(1L, 2L)), ids("HAMM"));
+        assertEquals(Optional.of(Set.of(3L)), ids("chair"));
+    }
+
+    @Test
+    void candidates_whenNothingMatches() {
+        assertEquals(Optional.of(Set.of()), ids("bicycle"));
+    }
+
+    @Test
+    void candidates_whenTextIsShorterThanGram() {
+        assertTrue(adNameIndex.candidates("ha").isEmpty());
+    }
+
+    @Test
+    void candidates_whenTooManyMatches() {
+        ReflectionTestUtils.setField(adNameIndex, "maxCandidates", 1);
+
+        assertTrue(adNameIndex.candidates("hammer").isEmpty());
+    }
+
+    @Test
+    void rebuild_shouldLeaveRecentIdsToTheDatabase() {
+        when(adRepository.findIndexViewsAfter(anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(view(40L, "Red Hammer"), view(50L, "Claw hammer")));
+
+        adNameIndex.rebuild();
+
+        AdNameIndex.Candidates candidates = adNameIndex.candidates("hammer").orElseThrow();
+        assertEquals(Set.of(40L, 50L), candidates.ids());
+        assertEquals(40L, candidates.indexedUpTo());
+    }
+
+    @Test
+    void rebuild_shouldKeepChangesMadeWhileReading() {
+        when(adRepository.findIndexViewsAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            adNameIndex.add(60L, "Sledge hammer");
+            adNameIndex.remove(1L, "Red Hammer");
+            assertEquals(Optional.of(Set.of(2L, 60L)), ids("hammer"));
+            return List.of(view(1L, "Red Hammer"), view(2L, "Claw hammer"));
+        });
+
+        adNameIndex.rebuild();
+
+        assertEquals(Optional.of(Set.of(2L, 60L)), ids("hammer"));
+    }
+
+    @Test
+    void update_shouldMoveAdToNewName() {
+        adNameIndex.update(1L, "Red Hammer", "Red bicycle");
+
+        assertEquals(Optional.of(Set.of(2L)), ids("hammer"));
+        assertEquals(Optional.of(Set.of(1L)), ids("bicycle"));
+    }
+
+    @Test
+    void remove_shouldDropAdFromCandidates() {
+        adNameIndex.remove(2L, "Claw hammer");
+
+        assertEquals(Optional.of(Set.of(1L)), ids("hammer"));
+    }
+
+    private Optional<Set<Long>> ids(String text) {
+        return adNameIndex.candidates(text).map(AdNameIndex.Candidates::ids);
+    }
+
+    private static AdIndexView view(Long id, String name) {
+        return new AdIndexView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Category getCategory() {
+                return Category.TOOLS;
+            }
+
+            @Override
+            public Double getPrice() {
+                return 10.0;
+            }
+        };
+    }
+}
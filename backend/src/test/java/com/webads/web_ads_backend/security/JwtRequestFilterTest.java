@@ -0,0 +1,100 @@
+package com.webads.web_ads_backend.security;
+
+import com.webads.web_ads_backend.model.User;
+import com.webads.web_ads_backend.repository.UserRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Counts user repository round-trips per authenticated request for tokens with and without the user id claim.
+ */
+@ExtendWith(MockitoExtension.class)
+class JwtRequestFilterTest {
+
+    private static final String SECRET = "489cfee0b9e5ca54d18cf703a33ef253331c7c29dc4cb3decee1c23c5b4f0598";
+    private static final int REQUESTS = 1000;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private JwtUtil jwtUtil;
+    private JwtRequestFilter jwtRequestFilter;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil(new SimpleMeterRegistry(), SECRET, 900000L, 100);
+        jwtRequestFilter = new JwtRequestFilter(new CustomUserDetailsService(userRepository), jwtUtil);
+
+        testUser = new User();
+        testUser.setId(7L);
+        testUser.setUsername("testuser");
+        testUser.setPassword("hashedPassword");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_withUserIdClaim_shouldNotQueryUsers() throws Exception {
+        String token = jwtUtil.generateToken(new AuthenticatedUser(testUser));
+
+        int roundTrips = authenticate(token, REQUESTS);
+
+        assertEquals(0, roundTrips);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void doFilter_withLegacyToken_shouldFallBackToLookup() throws Exception {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        String legacyToken = Jwts.builder()
+                .setSubject("testuser")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 900000L))
+                .signWith(SignatureAlgorithm.HS256, SECRET).compact();
+
+        int legacyRoundTrips = authenticate(legacyToken, REQUESTS);
+        int roundTrips = authenticate(jwtUtil.generateToken(new AuthenticatedUser(testUser)), REQUESTS) - legacyRoundTrips;
+
+        System.out.printf("user lookups per authenticated request: legacy token %.2f, stateless token %.2f, saved %d round-trips over %d requests%n",
+                (double) legacyRoundTrips / REQUESTS, (double) roundTrips / REQUESTS, legacyRoundTrips - roundTrips, REQUESTS);
+        assertEquals(REQUESTS, legacyRoundTrips);
+        assertEquals(0, roundTrips);
+    }
+
+    private int authenticate(String token, int requests) throws Exception {
+        for (int i = 0; i < requests; i++) {
+            SecurityContextHolder.clearContext();
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/ads");
+            request.addHeader("Authorization", "Bearer " + token);
+
+            jwtRequestFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            AuthenticatedUser principal = (AuthenticatedUser) authentication.getPrincipal();
+            assertEquals(7L, principal.getId());
+        }
+        return mockingDetails(userRepository).getInvocations().size();
+    }
+}
@@ -0,0 +1,76 @@
+package com.webads.web_ads_backend.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "489cfee0b9e5ca54d18cf703a33ef253331c7c29dc4cb3decee1c23c5b4f0598";
+
+    private SimpleMeterRegistry meterRegistry;
+    private JwtUtil jwtUtil;
+    private AuthenticatedUser testUser;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtUtil = new JwtUtil(meterRegistry, SECRET, 900000L, 100);
+        testUser = new AuthenticatedUser(7L, "testuser");
+    }
+
+    @Test
+    void parseToken_shouldReturnAllClaims() {
+        String token = jwtUtil.generateToken(testUser);
+
+        Claims claims = jwtUtil.parseToken(token);
+
+        assertEquals("testuser", claims.getSubject());
+        assertEquals(7L, jwtUtil.extractUserId(claims));
+        assertTrue(jwtUtil.validateToken(token, testUser));
+    }
+
+    @Test
+    void parseToken_shouldServeVerifiedTokenFromCache() {
+        String token = jwtUtil.generateToken(testUser);
+
+        Claims first = jwtUtil.parseToken(token);
+        Claims second = jwtUtil.parseToken(token);
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void parseToken_shouldTimeValidationsByResult() {
+        String token = jwtUtil.generateToken(testUser);
+
+        jwtUtil.parseToken(token);
+        jwtUtil.parseToken(token);
+        assertThrows(SignatureException.class, () -> jwtUtil.parseToken(token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA")));
+
+        assertEquals(1, meterRegistry.get("jwt.validation").tag("result", "verified").timer().count());
+        assertEquals(1, meterRegistry.get("jwt.validation").tag("result", "cached").timer().count());
+        assertEquals(1, meterRegistry.get("jwt.validation").tag("result", "invalid").timer().count());
+    }
+
+    @Test
+    void parseToken_whenSignatureIsInvalid() {
+        String token = jwtUtil.generateToken(testUser);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(SignatureException.class, () -> jwtUtil.parseToken(tampered));
+    }
+
+    @Test
+    void parseToken_whenTokenIsExpired() {
+        JwtUtil expiredTokens = new JwtUtil(new SimpleMeterRegistry(), SECRET, -1000L, 100);
+        String token = expiredTokens.generateToken(testUser);
+
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.parseToken(token));
+    }
+}
@@ -0,0 +1,62 @@
+package com.webads.web_ads_backend.security;
+
+import com.webads.web_ads_backend.exceptions.ServerBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        passwordHashingExecutor = new PasswordHashingExecutor(meterRegistry, 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHashingExecutor.destroy();
+    }
+
+    @Test
+    void submit_shouldRunTaskOnPool() throws Exception {
+        String thread = passwordHashingExecutor.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+
+        assertTrue(thread.startsWith("password-hashing-"));
+    }
+
+    @Test
+    void submit_whenQueueIsFull_shouldRejectRightAway() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = passwordHashingExecutor.submit(() -> await(release));
+        CompletableFuture<Boolean> queued = passwordHashingExecutor.submit(() -> await(release));
+
+        assertThrows(ServerBusyException.class, () -> passwordHashingExecutor.submit(() -> true));
+        assertEquals(1.0, meterRegistry.get("password.hashing.rejected").counter().count());
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertTrue(passwordHashingExecutor.submit(() -> true).get(5, TimeUnit.SECONDS));
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.webads.web_ads_backend.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RehashingBCryptPasswordEncoderTest {
+
+    private final RehashingBCryptPasswordEncoder passwordEncoder = new RehashingBCryptPasswordEncoder(5);
+
+    @Test
+    void upgradeEncoding_whenStrengthMatches_shouldKeepHash() {
+        assertFalse(passwordEncoder.upgradeEncoding(passwordEncoder.encode("password")));
+    }
+
+    @Test
+    void upgradeEncoding_whenStrengthDiffers_shouldRehash() {
+        String weaker = new BCryptPasswordEncoder(4).encode("password");
+        String stronger = new BCryptPasswordEncoder(6).encode("password");
+
+        assertTrue(passwordEncoder.upgradeEncoding(weaker));
+        assertTrue(passwordEncoder.upgradeEncoding(stronger));
+        assertTrue(passwordEncoder.matches("password", weaker));
+    }
+
+    @Test
+    void upgradeEncoding_whenNotBCrypt_shouldKeepHash() {
+        assertFalse(passwordEncoder.upgradeEncoding(null));
+        assertFalse(passwordEncoder.upgradeEncoding("plain"));
+    }
+}
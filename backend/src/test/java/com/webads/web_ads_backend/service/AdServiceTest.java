@@ -1,5 +1,9 @@
 package com.webads.web_ads_backend.service;
 
+import com.webads.web_ads_backend.cache.AdDetailCache;
+import com.webads.web_ads_backend.dto.AdDTO;
+import com.webads.web_ads_backend.dto.AdFacetsDTO;
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
 import com.webads.web_ads_backend.dto.CreateAdDTO;
 import com.webads.web_ads_backend.exceptions.ResourceNotFoundException;
 import com.webads.web_ads_backend.model.Ad;
@@ -7,6 +11,9 @@ import com.webads.web_ads_backend.model.Category;
 import com.webads.web_ads_backend.model.User;
 import com.webads.web_ads_backend.repository.AdRepository;
 import com.webads.web_ads_backend.repository.UserRepository;
+import com.webads.web_ads_backend.search.AdFacets;
+import com.webads.web_ads_backend.search.AdNameIndex;
+import com.webads.web_ads_backend.specification.AdCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,15 +24,29 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,11 +58,21 @@ class AdServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private AdNameIndex adNameIndex;
+
+    @Mock
+    private AdFacets adFacets;
+
+    @Mock
+    private AdDetailCache adDetailCache;
+
     @InjectMocks
     private AdService adService;
 
     private User testUser;
     private Ad testAd;
+    private AdSummaryDTO testSummary;
     private CreateAdDTO createAdDTO;
 
     @BeforeEach
@@ -55,6 +86,9 @@ class AdServiceTest {
         testAd.setName("Test Ad");
         testAd.setUser(testUser);
 
+        testSummary = new AdSummaryDTO(1L, "Test Ad", "description", null, 100.0, "TOOLS", "Novi Sad",
+                LocalDateTime.now(), new AdSummaryDTO.Seller(1L, "testuser", "123456789", null));
+
         createAdDTO = new CreateAdDTO();
         createAdDTO.setName("New Test Ad");
         createAdDTO.setCategory("TOOLS");
@@ -62,6 +96,8 @@ class AdServiceTest {
         createAdDTO.setCity("Novi Sad");
         createAdDTO.setImageUrl("imageurl");
         createAdDTO.setDescription("description");
+
+        ReflectionTestUtils.setField(adService, "batchMaxSize", 3);
     }
 
 
@@ -76,6 +112,28 @@ class AdServiceTest {
         assertEquals("New Test Ad", createdAd.getName());
         assertEquals(testUser, createdAd.getUser());
         verify(adRepository, times(1)).save(any(Ad.class));
+        verify(adNameIndex, times(1)).add(createdAd.getId(), "New Test Ad");
+        verify(adFacets, times(1)).put(createdAd.getId(), Category.TOOLS, 100.0);
+    }
+
+    @Test
+    void createAd_inTransaction_shouldUpdateIndexesAfterCommitOnly() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(adRepository.save(any(Ad.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionSynchronizationManager.initSynchronization();
+        Ad createdAd;
+        try {
+            createdAd = adService.createAd(createAdDTO, "testuser");
+
+            verifyNoInteractions(adNameIndex, adFacets);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(adNameIndex, times(1)).add(createdAd.getId(), "New Test Ad");
+        verify(adFacets, times(1)).put(createdAd.getId(), Category.TOOLS, 100.0);
     }
 
     @Test
@@ -99,89 +157,314 @@ class AdServiceTest {
         });
     }
 
+    @Test
+    void getAdDetails_shouldUseCache() {
+        AdDTO cached = new AdDTO();
+        when(adDetailCache.get(1L)).thenReturn(Optional.of(cached));
+
+        assertSame(cached, adService.getAdDetails(1L));
+        verifyNoInteractions(adRepository);
+    }
+
+    @Test
+    void getAdDetails_whenAdNotFound() {
+        when(adDetailCache.get(2L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> adService.getAdDetails(2L));
+    }
+
+    @Test
+    void createAds_whenUserExists_shouldSaveAllAdsAtOnce() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(adRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Ad> createdAds = adService.createAds(List.of(createAdDTO, createAdDTO), "testuser");
+
+        assertEquals(2, createdAds.size());
+        assertTrue(createdAds.stream().allMatch(ad -> ad.getUser() == testUser));
+        verify(userRepository, times(1)).findByUsername("testuser");
+        verify(adRepository, times(1)).saveAll(anyList());
+        verify(adRepository, never()).save(any(Ad.class));
+        verify(adNameIndex, times(2)).add(any(), eq("New Test Ad"));
+    }
+
+    @Test
+    void createAds_inTransaction_shouldUpdateIndexesAfterCommitOnly() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(adRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            adService.createAds(List.of(createAdDTO, createAdDTO), "testuser");
+
+            verifyNoInteractions(adNameIndex, adFacets);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(adNameIndex, times(2)).add(any(), eq("New Test Ad"));
+        verify(adFacets, times(2)).put(any(), eq(Category.TOOLS), eq(100.0));
+    }
+
+    @Test
+    void createAds_whenOneCategoryIsInvalid_shouldSaveNothing() {
+        CreateAdDTO invalid = new CreateAdDTO();
+        invalid.setName("Invalid");
+        invalid.setCategory("INVALID_CATEGORY");
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+
+        assertThrows(IllegalArgumentException.class, () -> adService.createAds(List.of(createAdDTO, invalid), "testuser"));
+
+        verify(adRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void createAds_whenTooManyAds() {
+        assertThrows(IllegalArgumentException.class,
+                () -> adService.createAds(Collections.nCopies(4, createAdDTO), "testuser"));
+
+        verifyNoInteractions(userRepository, adRepository);
+    }
 
     @Test
     void deleteAd_whenUserIsOwner() {
-        when(adRepository.findById(1L)).thenReturn(Optional.of(testAd));
+        when(adRepository.findOwnedForUpdate(1L, 1L)).thenReturn(Optional.of(testAd));
 
-        adService.deleteAd(1L, "testuser");
+        adService.deleteAd(1L, 1L);
 
         verify(adRepository, times(1)).delete(testAd);
+        verify(adRepository, never()).existsById(any());
+        verify(adNameIndex, times(1)).remove(1L, "Test Ad");
+        verify(adFacets, times(1)).remove(1L);
+        verify(adDetailCache, times(1)).invalidate(1L);
+    }
+
+    @Test
+    void deleteAd_inTransaction_shouldUpdateCachesAfterCommitOnly() {
+        when(adRepository.findOwnedForUpdate(1L, 1L)).thenReturn(Optional.of(testAd));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            adService.deleteAd(1L, 1L);
+
+            verifyNoInteractions(adNameIndex, adFacets, adDetailCache);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(adNameIndex, times(1)).remove(1L, "Test Ad");
+        verify(adFacets, times(1)).remove(1L);
+        verify(adDetailCache, times(1)).invalidate(1L);
     }
 
     @Test
     void deleteAd_whenUserIsNotOwner() {
-        when(adRepository.findById(1L)).thenReturn(Optional.of(testAd));
+        when(adRepository.findOwnedForUpdate(1L, 2L)).thenReturn(Optional.empty());
+        when(adRepository.existsById(1L)).thenReturn(true);
 
         assertThrows(AccessDeniedException.class, () -> {
-            adService.deleteAd(1L, "anotheruser");
+            adService.deleteAd(1L, 2L);
         });
 
         verify(adRepository, never()).delete(any(Ad.class));
+        verify(adNameIndex, never()).remove(any(), any());
+        verify(adDetailCache, never()).invalidate(any());
     }
 
     @Test
     void deleteAd_whenAdNotFound() {
-        when(adRepository.findById(2L)).thenReturn(Optional.empty());
+        when(adRepository.findOwnedForUpdate(2L, 1L)).thenReturn(Optional.empty());
+        when(adRepository.existsById(2L)).thenReturn(false);
 
         assertThrows(ResourceNotFoundException.class, () -> {
-            adService.deleteAd(2L, "testuser");
+            adService.deleteAd(2L, 1L);
         });
     }
 
 
     @Test
     void updateAd_whenUserIsOwner_shouldUpdateAndReturnAd() {
-        when(adRepository.findById(1L)).thenReturn(Optional.of(testAd));
-        when(adRepository.save(any(Ad.class))).thenAnswer(invocation -> invocation.getArgument(0));
-
         CreateAdDTO updateDto = new CreateAdDTO();
         updateDto.setName("Updated Ad Name");
         updateDto.setCategory("SPORTS");
+        updateDto.setPrice(5.0);
+        when(adRepository.findOwnedForUpdate(1L, 1L)).thenReturn(Optional.of(testAd));
 
-        Ad updatedAd = adService.updateAd(1L, updateDto, "testuser");
+        Ad updatedAd = adService.updateAd(1L, updateDto, 1L);
 
-        assertNotNull(updatedAd);
+        assertSame(testAd, updatedAd);
         assertEquals("Updated Ad Name", updatedAd.getName());
         assertEquals(Category.SPORTS, updatedAd.getCategory());
-        verify(adRepository, times(1)).save(testAd);
+        verify(adRepository, never()).save(any(Ad.class));
+        verify(adRepository, never()).findById(any());
+        verify(adNameIndex, times(1)).update(1L, "Test Ad", "Updated Ad Name");
+        verify(adFacets, times(1)).put(1L, Category.SPORTS, 5.0);
+        verify(adDetailCache, times(1)).invalidate(1L);
     }
 
     @Test
     void updateAd_whenUserIsNotOwner() {
-        when(adRepository.findById(1L)).thenReturn(Optional.of(testAd));
+        when(adRepository.findOwnedForUpdate(1L, 2L)).thenReturn(Optional.empty());
+        when(adRepository.existsById(1L)).thenReturn(true);
 
         assertThrows(AccessDeniedException.class, () -> {
-            adService.updateAd(1L, createAdDTO, "anotheruser");
+            adService.updateAd(1L, createAdDTO, 2L);
         });
-        verify(adRepository, never()).save(any(Ad.class));
+        verifyNoInteractions(adNameIndex, adFacets, adDetailCache);
+    }
+
+    @Test
+    void updateAd_whenAdNotFound() {
+        when(adRepository.findOwnedForUpdate(2L, 1L)).thenReturn(Optional.empty());
+        when(adRepository.existsById(2L)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () -> adService.updateAd(2L, createAdDTO, 1L));
+    }
+
+    @Test
+    void updateAd_whenCategoryIsInvalid_shouldNotUpdate() {
+        createAdDTO.setCategory("INVALID_CATEGORY");
+
+        assertThrows(IllegalArgumentException.class, () -> adService.updateAd(1L, createAdDTO, 1L));
+        verifyNoInteractions(adRepository);
     }
 
     @Test
     void getAllAds_whenCalled() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Ad> expectedPage = new PageImpl<>(Collections.emptyList());
+        Page<AdSummaryDTO> expectedPage = new PageImpl<>(Collections.emptyList());
 
-        when(adRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(expectedPage);
+        when(adRepository.findSummaries(any(Specification.class), any(Pageable.class), anyInt())).thenReturn(expectedPage);
 
-        Page<Ad> resultPage = adService.getAllAds( "TOOLS", "hammer", 10.0, 50.0, 1L, pageable);
+        Page<AdSummaryDTO> resultPage = adService.getAllAds( "TOOLS", "hammer", 10.0, 50.0, 1L, pageable);
 
         assertNotNull(resultPage);
         assertEquals(expectedPage, resultPage);
 
-        verify(adRepository, times(1)).findAll(any(Specification.class), any(Pageable.class));
+        verify(adRepository, times(1)).findSummaries(any(Specification.class), any(Pageable.class), anyInt());
+    }
+
+    @Test
+    void getAllAds_whenNameIndexHasNoCandidates_shouldStillQueryAdsAboveTheIndex() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(adNameIndex.candidates("zzz")).thenReturn(Optional.of(new AdNameIndex.Candidates(Set.of(), 100L)));
+        when(adRepository.findSummaries(any(Specification.class), any(Pageable.class), anyInt())).thenReturn(new PageImpl<>(List.of(testSummary)));
+
+        Page<AdSummaryDTO> resultPage = adService.getAllAds(null, "zzz", null, null, null, pageable);
+
+        assertEquals(1, resultPage.getTotalElements());
+        verify(adRepository, times(1)).findSummaries(any(Specification.class), any(Pageable.class), anyInt());
+    }
+
+    @Test
+    void getAllAds_whenNameIndexHasCandidates() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(adNameIndex.candidates("hammer")).thenReturn(Optional.of(new AdNameIndex.Candidates(Set.of(1L, 2L), 100L)));
+        when(adRepository.findSummaries(any(Specification.class), any(Pageable.class), anyInt())).thenReturn(new PageImpl<>(List.of(testSummary)));
+
+        Page<AdSummaryDTO> resultPage = adService.getAllAds(null, "hammer", null, null, null, pageable);
+
+        assertEquals(1, resultPage.getTotalElements());
+        verify(adRepository, times(1)).findSummaries(any(Specification.class), any(Pageable.class), anyInt());
     }
 
     @Test
     void getAllAds_withNullFilters() {
         Pageable pageable = PageRequest.of(0, 20);
-        Page<Ad> expectedPage = new PageImpl<>(List.of(new Ad(), new Ad()));
-        when(adRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(expectedPage);
+        Page<AdSummaryDTO> expectedPage = new PageImpl<>(List.of(testSummary, testSummary));
+        when(adRepository.findSummaries(any(Specification.class), any(Pageable.class), anyInt())).thenReturn(expectedPage);
 
-        Page<Ad> resultPage = adService.getAllAds(null, null, null, null, null, pageable);
+        Page<AdSummaryDTO> resultPage = adService.getAllAds(null, null, null, null, null, pageable);
 
         assertNotNull(resultPage);
         assertEquals(2, resultPage.getTotalElements());
-        verify(adRepository, times(1)).findAll(any(Specification.class), any(Pageable.class));
+        verify(adRepository, times(1)).findSummaries(any(Specification.class), any(Pageable.class), anyInt());
+    }
+
+    @Test
+    void getAdsAfterCursor_whenMoreAdsExist() {
+        when(adRepository.findSummaries(any(Specification.class), any(Sort.class), eq(3), anyInt())).thenReturn(List.of(testSummary, testSummary, testSummary));
+
+        Slice<AdSummaryDTO> slice = adService.getAdsAfterCursor("TOOLS", null, null, null, null,
+                new AdCursor(LocalDateTime.now(), 10L), 2);
+
+        assertEquals(2, slice.getNumberOfElements());
+        assertTrue(slice.hasNext());
+    }
+
+    @Test
+    void getAdsAfterCursor_whenLastSlice() {
+        when(adRepository.findSummaries(any(Specification.class), any(Sort.class), eq(3), anyInt())).thenReturn(List.of(testSummary));
+
+        Slice<AdSummaryDTO> slice = adService.getAdsAfterCursor(null, null, null, null, null, null, 2);
+
+        assertEquals(1, slice.getNumberOfElements());
+        assertFalse(slice.hasNext());
+        verify(adRepository, never()).count(any(Specification.class));
+    }
+
+    @Test
+    void getAdsAfterCursor_whenSizeIsInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            adService.getAdsAfterCursor(null, null, null, null, null, null, 0);
+        });
+    }
+
+    @Test
+    void exportAds_shouldPassEveryAdToConsumerAndCloseStream() {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        when(adRepository.streamSummaries(any(Specification.class), any(Sort.class), anyInt()))
+                .thenReturn(Stream.of(testSummary, testSummary).onClose(() -> closed.set(true)));
+        List<AdSummaryDTO> exported = new ArrayList<>();
+
+        long count = adService.exportAds("TOOLS", null, null, null, null, exported::add);
+
+        assertEquals(2, count);
+        assertEquals(2, exported.size());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void getFacets_withoutNameOrUser_shouldUseInMemoryAggregates() {
+        when(adFacets.getPriceBuckets()).thenReturn(new double[]{0, 100});
+        when(adFacets.categoryCounts(10.0, null)).thenReturn(Optional.of(Map.of(Category.TOOLS, 4L)));
+        when(adFacets.priceHistogram(Category.TOOLS)).thenReturn(Optional.of(new long[]{3, 2}));
+
+        AdFacetsDTO facets = adService.getFacets("tools", null, 10.0, null, null);
+
+        assertEquals(4L, facets.getCategories().get("TOOLS"));
+        assertEquals(0L, facets.getCategories().get("BOOKS"));
+        assertEquals(Category.values().length, facets.getCategories().size());
+        assertEquals(2, facets.getPrices().size());
+        assertEquals(100.0, facets.getPrices().get(0).getTo());
+        assertEquals(2L, facets.getPrices().get(1).getCount());
+        assertNull(facets.getPrices().get(1).getTo());
+        verifyNoInteractions(adRepository);
+    }
+
+    @Test
+    void getFacets_withUser_shouldCountInDatabase() {
+        when(adFacets.getPriceBuckets()).thenReturn(new double[]{0, 100});
+        when(adRepository.countByCategory(any(Specification.class))).thenReturn(Map.of(Category.BOOKS, 1L));
+        when(adRepository.countByPriceBucket(any(Specification.class), any(double[].class))).thenReturn(new long[]{1, 0});
+
+        AdFacetsDTO facets = adService.getFacets(null, null, null, null, 1L);
+
+        assertEquals(1L, facets.getCategories().get("BOOKS"));
+        assertEquals(1L, facets.getPrices().get(0).getCount());
+        verify(adFacets, never()).categoryCounts(any(), any());
+    }
+
+    @Test
+    void getFacets_withInvalidCategory_shouldReturnEmptyHistogram() {
+        when(adFacets.getPriceBuckets()).thenReturn(new double[]{0, 100});
+        when(adFacets.categoryCounts(null, null)).thenReturn(Optional.of(Map.of()));
+
+        AdFacetsDTO facets = adService.getFacets("nope", null, null, null, null);
+
+        assertEquals(0L, facets.getPrices().get(0).getCount());
+        verify(adFacets, never()).priceHistogram(any());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package com.webads.web_ads_backend.service;
+
+import com.webads.web_ads_backend.cache.AdDetailCache;
+import com.webads.web_ads_backend.dto.AdDTO;
+import com.webads.web_ads_backend.dto.AdSummaryDTO;
+import com.webads.web_ads_backend.exceptions.ResourceNotFoundException;
+import com.webads.web_ads_backend.repository.AdSqlFilter;
+import com.webads.web_ads_backend.repository.ReactiveAdRepository;
+import com.webads.web_ads_backend.search.AdNameIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveAdServiceTest {
+
+    @Mock
+    private ReactiveAdRepository reactiveAdRepository;
+
+    @Mock
+    private AdNameIndex adNameIndex;
+
+    @Mock
+    private AdDetailCache adDetailCache;
+
+    @InjectMocks
+    private ReactiveAdService reactiveAdService;
+
+    private AdSummaryDTO testSummary;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reactiveAdService, "descriptionPreviewLength", 200);
+        testSummary = new AdSummaryDTO(1L, "Lamp", "Desk lamp", null, 15.0, "FURNITURE", "Kyiv", LocalDateTime.now(),
+                new AdSummaryDTO.Seller(1L, "seller", "+380501234567", LocalDate.now()));
+    }
+
+    @Test
+    void getAllAds_whenFirstPageIsPartial_shouldNotCount() {
+        when(reactiveAdRepository.findSummaries(any(AdSqlFilter.class), eq(0L), eq(20), eq(200)))
+                .thenReturn(Flux.just(testSummary));
+
+        Page<AdSummaryDTO> result = reactiveAdService.getAllAds("furniture", null, null, null, null, PageRequest.of(0, 20)).block();
+
+        assertNotNull(result);
+        assertEquals(1, result.getTotalElements());
+        assertEquals("Lamp", result.getContent().get(0).name());
+        verify(reactiveAdRepository, never()).count(any());
+    }
+
+    @Test
+    void getAllAds_whenPageIsFull_shouldCount() {
+        when(reactiveAdRepository.findSummaries(any(AdSqlFilter.class), eq(1L), eq(1), eq(200)))
+                .thenReturn(Flux.just(testSummary));
+        when(reactiveAdRepository.count(any(AdSqlFilter.class))).thenReturn(Mono.just(5L));
+
+        Page<AdSummaryDTO> result = reactiveAdService.getAllAds(null, null, null, null, null, PageRequest.of(1, 1)).block();
+
+        assertNotNull(result);
+        assertEquals(5, result.getTotalElements());
+        assertEquals(5, result.getTotalPages());
+    }
+
+    @Test
+    void getAllAds_shouldRestrictToNameIndexCandidates() {
+        when(adNameIndex.candidates("lamp")).thenReturn(Optional.of(new AdNameIndex.Candidates(Set.of(1L), 100L)));
+        when(reactiveAdRepository.findSummaries(any(AdSqlFilter.class), anyLong(), anyInt(), anyInt()))
+                .thenReturn(Flux.just(testSummary));
+
+        reactiveAdService.getAllAds(null, "lamp", null, null, null, PageRequest.of(0, 20)).block();
+
+        ArgumentCaptor<AdSqlFilter> filter = ArgumentCaptor.forClass(AdSqlFilter.class);
+        verify(reactiveAdRepository).findSummaries(filter.capture(), anyLong(), anyInt(), anyInt());
+        assertTrue(filter.getValue().where().contains("(a.id = any(:ids) or a.id > :indexedUpTo)"));
+    }
+
+    @Test
+    void getAllAds_whenNothingCanMatch_shouldNotQuery() {
+        Page<AdSummaryDTO> result = reactiveAdService.getAllAds("nope", null, null, null, null, PageRequest.of(0, 20)).block();
+
+        assertNotNull(result);
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(reactiveAdRepository);
+    }
+
+    @Test
+    void getAdDetails_whenCached_shouldNotQuery() {
+        AdDTO cached = new AdDTO();
+        cached.setId(1L);
+        when(adDetailCache.getIfPresent(1L)).thenReturn(Optional.of(cached));
+
+        assertSame(cached, reactiveAdService.getAdDetails(1L).block());
+        verifyNoInteractions(reactiveAdRepository);
+    }
+
+    @Test
+    void getAdDetails_whenAdDoesNotExist() {
+        when(adDetailCache.getIfPresent(1L)).thenReturn(Optional.empty());
+        when(reactiveAdRepository.findById(1L)).thenReturn(Mono.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> reactiveAdService.getAdDetails(1L).block());
+    }
+}
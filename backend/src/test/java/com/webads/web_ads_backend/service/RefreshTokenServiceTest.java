@@ -5,119 +5,122 @@ import com.webads.web_ads_backend.model.RefreshToken;
 import com.webads.web_ads_backend.model.User;
 import com.webads.web_ads_backend.repository.RefreshTokenRepository;
 import com.webads.web_ads_backend.repository.UserRepository;
+import com.webads.web_ads_backend.security.RefreshTokenCodec;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Instant;
 import java.util.Optional;
-import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class RefreshTokenServiceTest {
 
+    private static final String SECRET = "489cfee0b9e5ca54d18cf703a33ef253331c7c29dc4cb3decee1c23c5b4f0598";
+
     @Mock
     private RefreshTokenRepository refreshTokenRepository;
 
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
+    private RefreshTokenCodec refreshTokenCodec;
+
     private RefreshTokenService refreshTokenService;
 
     private User testUser;
-    private RefreshToken testRefreshToken;
 
     @BeforeEach
     void setUp() {
+        refreshTokenCodec = new RefreshTokenCodec(SECRET);
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, userRepository, refreshTokenCodec);
         ReflectionTestUtils.setField(refreshTokenService, "refreshTokenDuration", 600000L);
+        ReflectionTestUtils.setField(refreshTokenService, "purgeBatchSize", 100);
 
         testUser = new User();
         testUser.setId(1L);
         testUser.setUsername("testuser");
-
-        testRefreshToken = new RefreshToken();
-        testRefreshToken.setId(1L);
-        testRefreshToken.setUser(testUser);
-        testRefreshToken.setToken(UUID.randomUUID().toString());
     }
 
     @Test
-    void createRefreshToken_shouldCreateAndSaveNewToken() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
-        when(refreshTokenRepository.save(any(RefreshToken.class))).thenAnswer(invocation -> {
-            RefreshToken tokenToSave = invocation.getArgument(0);
-            tokenToSave.setId(1L);
-            return tokenToSave;
-        });
-
-        RefreshToken createdToken = refreshTokenService.createRefreshToken("testuser");
-
-        assertNotNull(createdToken);
-        assertNotNull(createdToken.getToken());
-        assertEquals(testUser, createdToken.getUser());
-        assertTrue(createdToken.getExpiryDate().isAfter(Instant.now()));
-        verify(refreshTokenRepository, times(1)).save(any(RefreshToken.class));
+    void createRefreshToken_shouldSaveDigestOnly() {
+        when(userRepository.getReferenceById(1L)).thenReturn(testUser);
+
+        String token = refreshTokenService.createRefreshToken(1L);
+
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository, times(1)).save(saved.capture());
+        assertArrayEquals(RefreshTokenCodec.digest(token), saved.getValue().getTokenHash());
+        assertEquals(testUser, saved.getValue().getUser());
+        assertEquals(saved.getValue().getExpiryDate(), refreshTokenCodec.expiry(token).orElseThrow());
+        assertTrue(saved.getValue().getExpiryDate().isAfter(Instant.now()));
+        verify(userRepository, never()).findByUsername(any());
     }
 
     @Test
-    void verifyExpiration_whenTokenIsValid() {
-        testRefreshToken.setExpiryDate(Instant.now().plusSeconds(60));
+    void verify_whenTokenIsValid() {
+        String token = refreshTokenCodec.create(Instant.now().plusSeconds(60));
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUser(testUser);
+        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.of(refreshToken));
 
-        RefreshToken verifiedToken = refreshTokenService.verifyExpiration(testRefreshToken);
-
-        assertNotNull(verifiedToken);
-        assertEquals(testRefreshToken, verifiedToken);
-
-        verify(refreshTokenRepository, never()).delete(any(RefreshToken.class));
+        assertEquals(testUser, refreshTokenService.verify(token));
     }
 
     @Test
-    void verifyExpiration_whenTokenIsExpired() {
-        testRefreshToken.setExpiryDate(Instant.now().minusSeconds(60));
+    void verify_whenTokenIsExpired_shouldNotQuery() {
+        String token = refreshTokenCodec.create(Instant.now().minusSeconds(60));
 
-        assertThrows(TokenRefreshException.class, () -> {
-            refreshTokenService.verifyExpiration(testRefreshToken);
-        });
+        TokenRefreshException e = assertThrows(TokenRefreshException.class, () -> refreshTokenService.verify(token));
 
-        verify(refreshTokenRepository, times(1)).delete(testRefreshToken);
+        assertTrue(e.getMessage().contains("expired"));
+        verifyNoInteractions(refreshTokenRepository);
     }
 
     @Test
-    void findByToken_whenTokenExists() {
-        String tokenString = testRefreshToken.getToken();
-        when(refreshTokenRepository.findByToken(tokenString)).thenReturn(Optional.of(testRefreshToken));
+    void verify_whenSignatureIsInvalid_shouldNotQuery() {
+        String token = new RefreshTokenCodec("c2VjcmV0LW9mLWFub3RoZXItaW5zdGFsbGF0aW9uLTAxMjM0NTY3ODk=")
+                .create(Instant.now().plusSeconds(60));
+        String expiryChanged = refreshTokenCodec.create(Instant.now().plusSeconds(60)).replaceFirst("^\\d+", "9999999999");
+
+        assertThrows(TokenRefreshException.class, () -> refreshTokenService.verify(token));
+        assertThrows(TokenRefreshException.class, () -> refreshTokenService.verify(expiryChanged));
+        assertThrows(TokenRefreshException.class, () -> refreshTokenService.verify("not-a-token"));
+        assertThrows(TokenRefreshException.class, () -> refreshTokenService.verify(null));
+        verifyNoInteractions(refreshTokenRepository);
+    }
 
-        Optional<RefreshToken> foundToken = refreshTokenService.findByToken(tokenString);
+    @Test
+    void verify_whenTokenWasDeleted() {
+        String token = refreshTokenCodec.create(Instant.now().plusSeconds(60));
+        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.empty());
 
-        assertTrue(foundToken.isPresent());
-        assertEquals(testRefreshToken, foundToken.get());
+        assertThrows(TokenRefreshException.class, () -> refreshTokenService.verify(token));
     }
 
     @Test
-    void findByToken_whenTokenDoesNotExist() {
-        when(refreshTokenRepository.findByToken("unknown")).thenReturn(Optional.empty());
-
-        Optional<RefreshToken> foundTokenOpt = refreshTokenService.findByToken("unknown");
+    void deleteByUserId_shouldDeleteWithoutLoadingUser() {
+        refreshTokenService.deleteByUserId(1L);
 
-        assertFalse(foundTokenOpt.isPresent());
+        verify(userRepository, never()).findById(any());
+        verify(refreshTokenRepository, times(1)).deleteByUserId(1L);
     }
 
     @Test
-    void deleteByUserId_shouldCallRepositoryDeleteByUser() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-
-        refreshTokenService.deleteByUserId(1L);
+    void purgeExpired_shouldDeleteInBatchesUntilNoneAreLeft() {
+        when(refreshTokenRepository.deleteExpired(any(Instant.class), eq(100))).thenReturn(100, 100, 42);
 
-        verify(userRepository, times(1)).findById(1L);
-        verify(refreshTokenRepository, times(1)).deleteByUser(testUser);
+        assertEquals(242, refreshTokenService.purgeExpired());
+        verify(refreshTokenRepository, times(3)).deleteExpired(any(Instant.class), anyInt());
     }
-}
\ No newline at end of file
+}
@@ -87,16 +87,14 @@ class UserServiceTest {
 
 
     @Test
-    void register_whenUsernameIsAvailable() {
-        when(userRepository.findByUsername("newuser")).thenReturn(Optional.empty());
-        when(passwordEncoder.encode("password123")).thenReturn("hashedPassword123");
+    void register_shouldSaveUserWithPasswordHash() {
         when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
             User savedUser = invocation.getArgument(0);
             savedUser.setId(2L);
             return savedUser;
         });
 
-        User registeredUser = userService.register(registrationDTO);
+        User registeredUser = userService.register(registrationDTO, "hashedPassword123");
 
         assertNotNull(registeredUser);
         assertEquals("newuser", registeredUser.getUsername());
@@ -104,20 +102,30 @@ class UserServiceTest {
         assertEquals("123456789", registeredUser.getPhoneNumber());
         assertNotNull(registeredUser.getRegistrationDate());
 
-        verify(userRepository, times(1)).findByUsername("newuser");
-        verify(passwordEncoder, times(1)).encode("password123");
         verify(userRepository, times(1)).save(any(User.class));
+        verifyNoInteractions(passwordEncoder);
+    }
+
+    @Test
+    void hashPassword_shouldEncode() {
+        when(passwordEncoder.encode("password123")).thenReturn("hashedPassword123");
+
+        assertEquals("hashedPassword123", userService.hashPassword("password123"));
     }
 
     @Test
-    void register_whenUsernameAlreadyExists() {
+    void checkUsernameAvailable_whenUsernameIsAvailable() {
+        when(userRepository.findByUsername("newuser")).thenReturn(Optional.empty());
+
+        assertDoesNotThrow(() -> userService.checkUsernameAvailable("newuser"));
+    }
+
+    @Test
+    void checkUsernameAvailable_whenUsernameAlreadyExists() {
         when(userRepository.findByUsername("newuser")).thenReturn(Optional.of(testUser));
 
         assertThrows(UserAlreadyExistsException.class, () -> {
-            userService.register(registrationDTO);
+            userService.checkUsernameAvailable("newuser");
         });
-
-        verify(passwordEncoder, never()).encode(anyString());
-        verify(userRepository, never()).save(any(User.class));
     }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.webads.web_ads_backend.specification;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdCursorTest {
+
+    @Test
+    void encodeAndDecode_shouldReturnSamePosition() {
+        AdCursor cursor = new AdCursor(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123456000), 42L);
+
+        AdCursor decoded = AdCursor.decode(cursor.encode());
+
+        assertEquals(cursor.getPostDate(), decoded.getPostDate());
+        assertEquals(42L, decoded.getId());
+    }
+
+    @Test
+    void decode_whenCursorIsEmpty() {
+        assertNull(AdCursor.decode(""));
+        assertNull(AdCursor.decode(null));
+    }
+
+    @Test
+    void decode_whenCursorIsMalformed() {
+        assertThrows(IllegalArgumentException.class, () -> AdCursor.decode("not-a-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> AdCursor.decode("%%%"));
+    }
+}